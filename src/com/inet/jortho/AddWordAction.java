@@ -23,6 +23,7 @@
 package com.inet.jortho;
 
 import java.awt.event.ActionEvent;
+import java.util.Locale;
 
 import javax.swing.AbstractAction;
 import javax.swing.text.JTextComponent;
@@ -62,16 +63,19 @@ public class AddWordAction extends AbstractAction {
     }
 
     /**
-     * Add the word to the current user directory.
+     * Add the word to the user directory of the language of the text component.
      */
     public void actionPerformed( ActionEvent arg0 ) {
+        Locale locale = SpellChecker.getLocale( jText );
         UserDictionaryProvider provider = SpellChecker.getUserDictionaryProvider();
-        if( provider != null ) {
-            provider.addWord( word );
+        if( provider != null && locale != null ) {
+            provider.addWord( word, locale );
+        }
+        // the text component can be bound to its own language
+        Dictionary dictionary = SpellChecker.getDictionary( jText );
+        if( dictionary != null ) {
+            dictionary.add( word );
         }
-        Dictionary dictionary = SpellChecker.getCurrentDictionary();
-        dictionary.add( word );
-        dictionary.trimToSize();
         AutoSpellChecker.refresh( jText );
     }
 
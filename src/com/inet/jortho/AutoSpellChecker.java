@@ -22,22 +22,51 @@
  */
 package com.inet.jortho;
 
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import javax.swing.*;
 import javax.swing.event.*;
 import javax.swing.text.*;
-import javax.swing.text.Highlighter.Highlight;
 
 /**
  * This class check a <code>JTextComponent</code> automatically (in the background) for orthography. Spell error are
  * highlighted with a red zigzag line.
+ * <p>
+ * Changes of the document are not checked immediately. The changed ranges are collected and checked together after
+ * the user has stopped typing for a short time. The paragraphs are checked in background threads and the results are
+ * discarded if the document or the dictionary was changed in the meantime. All state except the modCount is only used
+ * in the event dispatch thread.
  * 
  * @author Volker Berlin
  */
 class AutoSpellChecker implements DocumentListener, LanguageChangeListener {
     private static final RedZigZagPainter painter = new RedZigZagPainter();
 
+    /** the time in milliseconds after the last change until the changed paragraphs are checked */
+    private static final int              DELAY     = 150;
+
+    /** the max time in milliseconds that a check is delayed by continuous typing */
+    private static final int              MAX_DELAY = 1000;
+
+    /**
+     * The threads that check the paragraphs of a complete document in the background. Lookups in a Dictionary have
+     * no state that all threads can use the same dictionary.
+     */
+    private static final ExecutorService checker = Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+        public Thread newThread( Runnable r ) {
+            Thread thread = new Thread( r, "JOrtho check" );
+            thread.setPriority( Thread.NORM_PRIORITY - 1 );
+            thread.setDaemon( true );
+            return thread;
+        }
+    } );
+
     private final JTextComponent                jText;
     private final SpellCheckerOptions options;
 
@@ -45,18 +74,55 @@ class AutoSpellChecker implements DocumentListener, LanguageChangeListener {
 
     private Locale                        locale;
 
+    /** the red zigzag lines of this checker, must only be used in the event dispatch thread */
+    private final MisspellingHighlights   highlights = new MisspellingHighlights();
+
+    /** count of document changes, a background result is only valid if there was no change in the meantime */
+    private volatile int                  modCount;
+
+    /** the changed ranges that are not checked yet, sorted and not overlapping */
+    private final ArrayList<Position[]>   dirty      = new ArrayList<Position[]>();
+
+    /** the time of the oldest change in dirty */
+    private long                          dirtySince;
+
+    /** the checks that are queued or running in the background */
+    private final ArrayList<RangeCheck>   running    = new ArrayList<RangeCheck>();
+
+    /** starts the check of the dirty ranges after the delay */
+    private final Timer                   timer;
+
     
     public AutoSpellChecker(JTextComponent text, SpellCheckerOptions options){
         this.jText = text;
         this.options = options == null ? SpellChecker.getOptions() : options;
+        timer = new Timer( DELAY, new ActionListener() {
+            public void actionPerformed( ActionEvent e ) {
+                checkDirty();
+            }
+        } );
+        timer.setRepeats( false );
         jText.getDocument().addDocumentListener( this );
 
         SpellChecker.addLanguageChangeLister( this );
-        dictionary = SpellChecker.getCurrentDictionary();
-        locale = SpellChecker.getCurrentLocale();
+        updateDictionary();
         checkAll();
     }
 
+    /**
+     * Resolve the dictionary and locale of the text component. It can be bound to its own language.
+     * 
+     * @return true, if the dictionary or locale has changed
+     * @see SpellChecker#setLocale(JTextComponent, Locale)
+     */
+    private boolean updateDictionary() {
+        Dictionary oldDictionary = dictionary;
+        Locale oldLocale = locale;
+        dictionary = SpellChecker.getDictionary( jText );
+        locale = SpellChecker.getLocale( jText );
+        return oldDictionary != dictionary || (oldLocale == null ? locale != null : !oldLocale.equals( locale ));
+    }
+
     /**
      * Remove the AutoSpellChecker from the given JTextComponent.
      * 
@@ -69,28 +135,16 @@ class AutoSpellChecker implements DocumentListener, LanguageChangeListener {
             if(listener instanceof AutoSpellChecker){
                 AutoSpellChecker autoSpell = (AutoSpellChecker)listener;
                 doc.removeDocumentListener( autoSpell );
-                removeHighlights(text);
+                SpellChecker.removeLanguageChangeLister( autoSpell );
+                autoSpell.cancelChecks( false );
+                autoSpell.highlights.removeAll( text );
             }
         }
     }
 
     /**
-     * Remove all SpellChecker highlights from the given JTextComponent.
-     * 
-     * @param text
-     *            the JTextComponent
-     */
-	private static void removeHighlights( JTextComponent text ) {
-        Highlighter highlighter = text.getHighlighter();
-        for( Highlight highlight : highlighter.getHighlights() ) {
-            if( highlight.getPainter() == painter ) {
-                highlighter.removeHighlight( highlight );
-            }
-        }
-    }
-    
-    /**
-     * Refresh the highlighting. This can be useful if the dictionary was modify.
+     * Refresh the highlighting. This can be useful if the dictionary was modify or the text component was bound to
+     * another language.
      * 
      * @param text
      *            the JTextComponent
@@ -100,6 +154,7 @@ class AutoSpellChecker implements DocumentListener, LanguageChangeListener {
         for(DocumentListener listener : doc.getDocumentListeners()){
             if( listener instanceof AutoSpellChecker ){
                 AutoSpellChecker autoSpell = (AutoSpellChecker)listener;
+                autoSpell.updateDictionary();
                 autoSpell.checkAll();
             }
         }
@@ -122,133 +177,302 @@ class AutoSpellChecker implements DocumentListener, LanguageChangeListener {
      * {@inheritDoc}
      */
     public void insertUpdate( DocumentEvent ev ) {
-        checkElements( ev.getOffset(), ev.getLength() );
+        modCount++;
+        markDirty( ev.getOffset(), ev.getOffset() + ev.getLength() );
     }
 
     /**
      * {@inheritDoc}
      */
     public void removeUpdate( DocumentEvent ev ) {
-        checkElements( ev.getOffset(), 0 );
+        modCount++;
+        markDirty( ev.getOffset(), ev.getOffset() );
     }
 
     /**
-     * Check the Elements on the given position.
+     * Remember a changed range of the text and restart the delay. The document can be changed from any thread, the
+     * range is passed as positions to the event dispatch thread.
      */
-    private void checkElements( int offset, int length ) {
-        int end = offset + length;
-        Document document = jText.getDocument();
-        Element element;
+    private void markDirty( int start, int end ) {
+        final Position startPos, endPos;
+        try {
+            Document document = jText.getDocument();
+            startPos = document.createPosition( start );
+            endPos = document.createPosition( end );
+        } catch( BadLocationException ex ) {
+            return;
+        }
+        if( SwingUtilities.isEventDispatchThread() ) {
+            markDirty( startPos, endPos );
+        } else {
+            SwingUtilities.invokeLater( new Runnable() {
+                public void run() {
+                    markDirty( startPos, endPos );
+                }
+            } );
+        }
+    }
 
-        do{
-            try {
-                // We need to use a ParagraphElement because a CharacterElement produce problems with formating in a word
-                element = ((AbstractDocument)document).getParagraphElement( offset );
-            } catch( java.lang.Exception ex ) {
-                return;
+    /**
+     * Add a changed range. The results of the running checks are outdated, their ranges are checked again.
+     */
+    private void markDirty( Position startPos, Position endPos ) {
+        cancelChecks( true );
+        schedule( startPos, endPos );
+    }
+
+    /**
+     * Add a range to the dirty ranges and restart the delay, but not longer as MAX_DELAY after the oldest change.
+     */
+    private void schedule( Position startPos, Position endPos ) {
+        addDirty( startPos, endPos );
+        long now = System.currentTimeMillis();
+        if( !timer.isRunning() ) {
+            dirtySince = now;
+            timer.restart();
+        } else if( now - dirtySince < MAX_DELAY ) {
+            timer.restart();
+        }
+    }
+
+    /**
+     * Merge a range in the sorted list of dirty ranges.
+     */
+    private void addDirty( Position startPos, Position endPos ) {
+        int start = startPos.getOffset();
+        int end = endPos.getOffset();
+        int i = 0;
+        while( i < dirty.size() && dirty.get( i )[1].getOffset() < start ) {
+            i++;
+        }
+        while( i < dirty.size() && dirty.get( i )[0].getOffset() <= end ) {
+            Position[] range = dirty.remove( i );
+            if( range[0].getOffset() < start ) {
+                startPos = range[0];
+                start = startPos.getOffset();
+            }
+            if( range[1].getOffset() > end ) {
+                endPos = range[1];
+                end = endPos.getOffset();
             }
-            checkElement( element );
-            int endOffset = element.getEndOffset();
-            offset = endOffset > offset ? endOffset : offset + 1;
-        }while( offset <= end && offset < document.getLength() );
+        }
+        dirty.add( i, new Position[] { startPos, endPos } );
     }
 
     /**
-     * Check the spelling of the text of an element.
+     * Cancel all checks that are queued or running in the background.
      * 
-     * @param element
-     *            the to checking Element
+     * @param recheck
+     *            true, if the ranges of the checks should be checked again; false, if the dictionary has changed and the
+     *            complete text will be checked
      */
-    private void checkElement( javax.swing.text.Element element ) {
-        try {
-            int i = element.getStartOffset();
-            int j = element.getEndOffset();
-            Highlighter highlighter = jText.getHighlighter();
-            Highlight[] highlights = highlighter.getHighlights();
-            for( int k = highlights.length; --k >= 0; ) {
-                Highlight highlight = highlights[k];
-                int hlStartOffset = highlight.getStartOffset();
-                int hlEndOffset = highlight.getEndOffset();
-                if( (i <= hlStartOffset && hlStartOffset <= j) || 
-                    (i <= hlEndOffset && hlEndOffset <= j) ) {
-                    if( highlight.getPainter() == painter ) {
-                        highlighter.removeHighlight( highlight );
-                    }
-                }
+    private void cancelChecks( boolean recheck ) {
+        for( RangeCheck check : running ) {
+            check.cancelled = true;
+            if( recheck ) {
+                addDirty( check.startPos, check.endPos );
             }
+        }
+        running.clear();
+        if( !recheck ) {
+            dirty.clear();
+            timer.stop();
+        }
+    }
 
-            int l = ((AbstractDocument)jText.getDocument()).getLength();
-            j = Math.min( j, l );
-            if( i >= j )
-                return;
+    /**
+     * Check the paragraphs of all dirty ranges. Is called from the timer in the event dispatch thread.
+     */
+    private void checkDirty() {
+        Position[][] ranges = dirty.toArray( new Position[dirty.size()][] );
+        dirty.clear();
+        for( Position[] range : ranges ) {
+            checkParagraphs( range[0].getOffset(), range[1].getOffset() );
+        }
+    }
 
-            // prevent a NPE if the dictionary is currently not loaded.
-            Dictionary dic = dictionary;
-            Locale loc = locale;
-            if( dic == null || loc == null ){
+    /**
+     * Start a background check for every paragraph in the range.
+     */
+    private void checkParagraphs( int start, int end ) {
+        AbstractDocument document = (AbstractDocument)jText.getDocument();
+        int length = document.getLength();
+        int offset = start;
+        do {
+            // We need to use a ParagraphElement because a CharacterElement produce problems with formating in a word
+            Element element = document.getParagraphElement( offset );
+            int elementEnd = element.getEndOffset();
+            try {
+                RangeCheck check = new RangeCheck( document.createPosition( element.getStartOffset() ),
+                                                   document.createPosition( Math.min( elementEnd, length ) ) );
+                running.add( check );
+                checker.execute( check );
+            } catch( BadLocationException ex ) {
                 return;
             }
-            
-            Tokenizer tok = new Tokenizer( jText, dic, loc, i, j, options );
-            String word;
+            offset = elementEnd > offset ? elementEnd : offset + 1;
+        } while( offset <= end && offset < length );
+    }
+
+    /**
+     * Search the misspelled words in a range of the text. This can be called from any thread.
+     * 
+     * @param i
+     *            the start offset
+     * @param j
+     *            the end offset
+     * @param dic
+     *            the dictionary, can be null
+     * @param loc
+     *            the locale, can be null
+     * @return the start and end offsets of the invalid words, two entries per word
+     */
+    private int[] findInvalidWords( int i, int j, Dictionary dic, Locale loc ) {
+        int[] ranges = new int[0];
+        // prevent a NPE if the dictionary is currently not loaded.
+        if( i >= j || dic == null || loc == null ) {
+            return ranges;
+        }
+        int count = 0;
+        Tokenizer tok = new Tokenizer( jText, dic, loc, i, j, options );
+        String word;
+        try {
             while( (word = tok.nextInvalidWord()) != null ) {
+                if( count == ranges.length ) {
+                    int[] temp = new int[Math.max( 8, 2 * count )];
+                    System.arraycopy( ranges, 0, temp, 0, count );
+                    ranges = temp;
+                }
                 int wordOffset = tok.getWordOffset();
-                highlighter.addHighlight( wordOffset, wordOffset + word.length(), painter );
+                ranges[count++] = wordOffset;
+                ranges[count++] = wordOffset + word.length();
             }
+        } finally {
+            tok.release();
+        }
+        if( count < ranges.length ) {
+            int[] temp = new int[count];
+            System.arraycopy( ranges, 0, temp, 0, count );
+            ranges = temp;
+        }
+        return ranges;
+    }
+
+    /**
+     * Replace the red zigzag lines in a range of the text. Only the own highlights of the range are touched, the other
+     * highlights of the text component are not scanned. Must be called in the event dispatch thread.
+     * 
+     * @param i
+     *            the start offset
+     * @param j
+     *            the end offset
+     * @param ranges
+     *            the offsets of the invalid words
+     */
+    private void setHighlights( int i, int j, int[] ranges ) {
+        try {
+            highlights.replace( jText, i, j, ranges, painter );
         } catch( BadLocationException e ) {
         	SpellChecker.getMessageHandler().handleException( e );
         }
     }
 
     /**
-//     * Check the completely text. Because this can consume many times with large Documents that this will do in a thread
-     * in the background step by step.
+     * Check the completely text. Because this can consume many times with large Documents that this will do in the
+     * background. The paragraphs are checked in parallel and only the found ranges are set in the event dispatch
+     * thread. Checks of the old dictionary are cancelled.
      */
     private void checkAll() {
         if( jText == null ) {
             //the needed objects does not exists
             return;
         }
+        cancelChecks( false );
         if( dictionary == null ) {
-            removeHighlights( jText );
+            highlights.removeAll( jText );
             return;
         }
         if( jText.getDocument().getLength() == 0 ){
             // no text, no highlights
             return;
         }
-
-        Thread thread = new Thread( new Runnable() {
-            public void run() {
-                Document document = jText.getDocument();
-                for( int i = 0; i < document.getLength(); ) {
-                    try {
-                        final Element element = ((AbstractDocument)document).getParagraphElement( i );
-                        i = element.getEndOffset();
-                        SwingUtilities.invokeLater( new Runnable() {
-                            public void run() {
-                                checkElement( element );
-                            }
-
-                        } );
-                    } catch( java.lang.Exception ex ) {
-                        return;
-                    }
-                }
-            }
-        }, "JOrtho checkall" );
-        thread.setPriority( Thread.NORM_PRIORITY - 1 );
-        thread.setDaemon( true );
-        thread.start();
+        checkParagraphs( 0, jText.getDocument().getLength() );
     }
 
     /**
      * {@inheritDoc}
      */
-    public void languageChanged( LanguageChangeEvent ev ) {
-        dictionary = SpellChecker.getCurrentDictionary();
-        locale = SpellChecker.getCurrentLocale();
-        checkAll();
+    public void languageChanged( final LanguageChangeEvent ev ) {
+        if( !SwingUtilities.isEventDispatchThread() ) {
+            // a dictionary can be loaded in a background thread
+            SwingUtilities.invokeLater( new Runnable() {
+                public void run() {
+                    languageChanged( ev );
+                }
+            } );
+            return;
+        }
+        // a text component that is bound to its own language is not affected
+        if( updateDictionary() ) {
+            checkAll();
+        }
     }
 
+    /**
+     * Check a range of the text in a background thread and set the highlights in the event dispatch thread. If the
+     * check was cancelled or the document was changed in the meantime then the result is discarded.
+     */
+    private class RangeCheck implements Runnable {
+
+        private final Position   startPos, endPos;
+
+        private final Dictionary dic;
+
+        private final Locale     loc;
+
+        private final int        startModCount;
+
+        /** set in the event dispatch thread if the result is not needed anymore */
+        volatile boolean         cancelled;
+
+        private int              start, end;
+
+        private int[]            ranges;
+
+        RangeCheck( Position startPos, Position endPos ) {
+            this.startPos = startPos;
+            this.endPos = endPos;
+            this.dic = dictionary;
+            this.loc = locale;
+            this.startModCount = modCount;
+        }
+
+        /**
+         * Is called first in a background thread and then in the event dispatch thread.
+         */
+        public void run() {
+            if( cancelled ) {
+                return;
+            }
+            if( ranges == null ) {
+                final Document document = jText.getDocument();
+                document.render( new Runnable() {
+                    public void run() {
+                        start = startPos.getOffset();
+                        end = Math.min( endPos.getOffset(), document.getLength() );
+                        ranges = findInvalidWords( start, end, dic, loc );
+                    }
+                } );
+                SwingUtilities.invokeLater( this );
+                return;
+            }
+            running.remove( this );
+            if( startModCount != modCount ) {
+                // the offsets can be invalid, check the range again
+                schedule( startPos, endPos );
+                return;
+            }
+            setHighlights( start, end, ranges );
+        }
+    }
 }
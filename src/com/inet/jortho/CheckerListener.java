@@ -50,10 +50,6 @@ public class CheckerListener implements PopupMenuListener, LanguageChangeListene
 
     private final JComponent          menu;
 
-    private Dictionary                dictionary;
-
-    private Locale                    locale;
-
     private final SpellCheckerOptions options;
 
     /**
@@ -67,9 +63,6 @@ public class CheckerListener implements PopupMenuListener, LanguageChangeListene
     public CheckerListener( JComponent menu, SpellCheckerOptions options ) {
         this.menu = menu;
         this.options = options == null ? SpellChecker.getOptions() : options;
-        SpellChecker.addLanguageChangeLister( this );
-        dictionary = SpellChecker.getCurrentDictionary();
-        locale = SpellChecker.getCurrentLocale();
     }
 
     /**
@@ -90,60 +83,65 @@ public class CheckerListener implements PopupMenuListener, LanguageChangeListene
      * {@inheritDoc}
      */
     public void popupMenuWillBecomeVisible( PopupMenuEvent ev ) {
-        if( dictionary == null) {
-            menu.setEnabled( false );
-            return;
-        }
-
         JPopupMenu popup = (JPopupMenu)ev.getSource();
 
         Component invoker = popup.getInvoker();
-        if( invoker instanceof JTextComponent ) {
-            final JTextComponent jText = (JTextComponent)invoker;
-            if( !jText.isEditable() ) {
-                // Suggestions only for editable text components
+        if( !(invoker instanceof JTextComponent) ) {
+            menu.setEnabled( false );
+            return;
+        }
+        final JTextComponent jText = (JTextComponent)invoker;
+        // the text component can be bound to its own language
+        Dictionary dictionary = SpellChecker.getDictionary( jText );
+        Locale locale = SpellChecker.getLocale( jText );
+        if( dictionary == null || locale == null ) {
+            menu.setEnabled( false );
+            return;
+        }
+        if( !jText.isEditable() ) {
+            // Suggestions only for editable text components
+            menu.setEnabled( false );
+            return;
+        }
+        try {
+            int offs = getCursorPosition( jText );
+            if( offs < 0 ) {
+                // occur if there nothing under the mouse pointer
+                menu.setEnabled( false );
+                return;
+            }
+            
+            // get the word from current position
+            final int begOffs = Utilities.getWordStart( jText, offs );
+            final int endOffs = Utilities.getWordEnd( jText, offs );
+            final String word = jText.getText( begOffs, endOffs - begOffs );
+
+            //find the first invalid word from current position, use the Tokenizer that it is ever compatible with the red zigzag line
+            Tokenizer tokenizer = new Tokenizer( jText, dictionary, locale, offs, options );
+            String invalidWord;
+            do {
+                invalidWord = tokenizer.nextInvalidWord();
+            } while( tokenizer.getWordOffset() < begOffs );
+            tokenizer.release();
+            menu.removeAll();
+
+            if( !word.equals( invalidWord ) ) {
+                // the current word is not invalid
                 menu.setEnabled( false );
                 return;
             }
-            try {
-                int offs = getCursorPosition( jText );
-                if( offs < 0 ) {
-                    // occur if there nothing under the mouse pointer
-                    menu.setEnabled( false );
-                    return;
-                }
-                
-                // get the word from current position
-                final int begOffs = Utilities.getWordStart( jText, offs );
-                final int endOffs = Utilities.getWordEnd( jText, offs );
-                final String word = jText.getText( begOffs, endOffs - begOffs );
-
-                //find the first invalid word from current position, use the Tokenizer that it is ever compatible with the red zigzag line
-                Tokenizer tokenizer = new Tokenizer( jText, dictionary, locale, offs, options );
-                String invalidWord;
-                do {
-                    invalidWord = tokenizer.nextInvalidWord();
-                } while( tokenizer.getWordOffset() < begOffs );
-                menu.removeAll();
-
-                if( !word.equals( invalidWord ) ) {
-                    // the current word is not invalid
-                    menu.setEnabled( false );
-                    return;
-                }
 
-                List<Suggestion> list = dictionary.searchSuggestions( word );
+            List<Suggestion> list = dictionary.searchSuggestions( word, options.getSuggestionsLimitMenu() );
 
-                //Disable then menu item if there are no suggestions
-                menu.setEnabled( list.size() > 0 );
+            //Disable then menu item if there are no suggestions
+            menu.setEnabled( list.size() > 0 );
 
-                boolean needCapitalization = tokenizer.isFirstWordInSentence() && Utils.isFirstCapitalized( word );
+            boolean needCapitalization = tokenizer.isFirstWordInSentence() && Utils.isFirstCapitalized( word );
 
-                addSuggestionMenuItem( jText, begOffs, endOffs, list, needCapitalization );
-                addMenuItemAddToDictionary( jText, word, list.size() > 0 );
-            } catch( BadLocationException ex ) {
-            	SpellChecker.getMessageHandler().handleException( ex );
-            }
+            addSuggestionMenuItem( jText, begOffs, endOffs, list, needCapitalization );
+            addMenuItemAddToDictionary( jText, word, list.size() > 0 );
+        } catch( BadLocationException ex ) {
+        	SpellChecker.getMessageHandler().handleException( ex );
         }
     }
     
@@ -246,9 +244,9 @@ public class CheckerListener implements PopupMenuListener, LanguageChangeListene
 
     /**
      * {@inheritDoc}
+     * The dictionary is resolved from the invoker of the popup every time it becomes visible.
      */
     public void languageChanged( LanguageChangeEvent ev ) {
-        dictionary = SpellChecker.getCurrentDictionary();
-        locale = SpellChecker.getCurrentLocale();
+        /* empty */
     }
 }
@@ -0,0 +1,284 @@
+/*
+ *  JOrtho
+ *
+ *  Copyright (C) 2005-2011 by i-net software
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License as
+ *  published by the Free Software Foundation; either version 2 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ *  USA.
+ */
+package com.inet.jortho;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * An index of the words of a dictionary for the search of suggestions with a symmetric delete algorithm. For every
+ * word all variants with up to two deleted characters are saved. Two words with an edit distance of up to two have
+ * a common variant. The search creates the variants of the misspelled word and needs only a few lookups. Only the
+ * first characters of a word are used for the variants that the size is limited. The candidates are verified with
+ * the same weights as the tree search.
+ */
+class DeletionIndex {
+
+    /** the max count of deleted characters */
+    private static final int MAX_DELETES = 2;
+
+    /** the count of characters at the start of a word that are used for the variants */
+    private static final int PREFIX_LENGTH = 7;
+
+    /** the characters of all words */
+    private final char[] chars;
+
+    /** the start of every word in chars, with one additional entry for the end of the last word */
+    private final int[] starts;
+
+    /** sorted entries with the hash code of a variant in the high and the number of the word in the low 32 bits */
+    private final long[] entries;
+
+    private DeletionIndex( char[] chars, int[] starts, long[] entries ) {
+        this.chars = chars;
+        this.starts = starts;
+        this.entries = entries;
+    }
+
+    /**
+     * Create the index for all words of a dictionary.
+     * @param dictionary the dictionary
+     * @param memoryBudget the max count of bytes that the index can need
+     * @return the index or null if it would need more memory as the budget
+     */
+    static DeletionIndex create( DictionaryBase dictionary, long memoryBudget ) {
+        // first count the words that the needed memory is known before anything is allocated
+        WordCounter counter = new WordCounter();
+        dictionary.walkWords( counter );
+        long memory = 2L * counter.charCount + 4L * counter.wordCount + 8L * counter.entryCount;
+        if( memory > memoryBudget || counter.charCount > Integer.MAX_VALUE || counter.entryCount > Integer.MAX_VALUE ) {
+            return null;
+        }
+
+        IndexBuilder builder = new IndexBuilder( (int)counter.charCount, counter.wordCount, (int)counter.entryCount );
+        dictionary.walkWords( builder );
+        long[] entries = builder.entries;
+        Arrays.sort( entries );
+        // remove the duplicates of words with equal variants
+        int count = 0;
+        for( int i = 0; i < entries.length; i++ ) {
+            if( count == 0 || entries[count - 1] != entries[i] ) {
+                entries[count++] = entries[i];
+            }
+        }
+        if( count < entries.length ) {
+            entries = Arrays.copyOf( entries, count );
+        }
+        return new DeletionIndex( builder.chars, builder.starts, entries );
+    }
+
+    /**
+     * Search the words with an edit distance of up to two.
+     * @param word the misspelled word
+     * @param list the container for the found words
+     */
+    void search( String word, Suggestions list ) {
+        char[] prefix = new char[Math.min( word.length(), PREFIX_LENGTH )];
+        for( int i = 0; i < prefix.length; i++ ) {
+            prefix[i] = Character.toLowerCase( word.charAt( i ) );
+        }
+        HashSet<Integer> candidates = new HashSet<Integer>();
+        for( int hash : variantHashes( prefix, prefix.length ) ) {
+            int i = lowerBound( (long)hash << 32 );
+            for( ; i < entries.length && (int)(entries[i] >> 32) == hash; i++ ) {
+                candidates.add( Integer.valueOf( (int)entries[i] ) );
+            }
+        }
+        char[] misspelled = word.toCharArray();
+        for( Integer candidate : candidates ) {
+            int start = starts[candidate.intValue()];
+            int length = starts[candidate.intValue() + 1] - start;
+            int bound = list.getMaxDissimilarity();
+            int diff = distance( misspelled, chars, start, length, bound );
+            if( diff <= bound ) {
+                list.add( new Suggestion( new String( chars, start, length ), diff ) );
+            }
+        }
+    }
+
+    /**
+     * Get the position of the first entry that is equal or larger as the key.
+     */
+    private int lowerBound( long key ) {
+        int low = 0;
+        int high = entries.length;
+        while( low < high ) {
+            int mid = (low + high) >>> 1;
+            if( entries[mid] < key ) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Calculate the hash codes of all variants of a word with up to two deleted characters. The hash codes are equal
+     * to String.hashCode() of the variants but no String is created.
+     * @param word the lower case prefix of a word
+     * @param length the length of the prefix
+     * @return the hash codes, can include duplicates
+     */
+    private static int[] variantHashes( char[] word, int length ) {
+        int[] hashes = new int[variantCount( length )];
+        int count = 0;
+        hashes[count++] = hash( word, length, -1, -1 );
+        for( int i = 0; i < length; i++ ) {
+            hashes[count++] = hash( word, length, i, -1 );
+            if( MAX_DELETES > 1 ) {
+                for( int j = i + 1; j < length; j++ ) {
+                    hashes[count++] = hash( word, length, i, j );
+                }
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * The count of variants of a word with the given length.
+     */
+    private static int variantCount( int length ) {
+        return 1 + length + (MAX_DELETES > 1 ? length * (length - 1) / 2 : 0);
+    }
+
+    /**
+     * String.hashCode() of a word without the characters at the two positions.
+     */
+    private static int hash( char[] word, int length, int skip1, int skip2 ) {
+        int hash = 0;
+        for( int i = 0; i < length; i++ ) {
+            if( i != skip1 && i != skip2 ) {
+                hash = 31 * hash + word[i];
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * The weighted Damerau-Levenshtein distance with the same weights like the tree search of DictionaryBase.
+     * @param word the misspelled word
+     * @param chars the characters of the candidate
+     * @param start the start of the candidate in chars
+     * @param length the length of the candidate
+     * @param bound the max distance that is of interest
+     * @return the distance or a value larger as bound
+     */
+    private static int distance( char[] word, char[] chars, int start, int length, int bound ) {
+        int n = word.length;
+        int[] previous2 = new int[n + 1];
+        int[] previous = new int[n + 1];
+        int[] row = new int[n + 1];
+        for( int j = 0; j <= n; j++ ) {
+            previous[j] = j * 5;
+        }
+        for( int i = 1; i <= length; i++ ) {
+            char c = chars[start + i - 1];
+            row[0] = i * 5;
+            int min = row[0];
+            for( int j = 1; j <= n; j++ ) {
+                char a = word[j - 1];
+                int value = Math.min( previous[j] + 5, row[j - 1] + 5 );
+                value = Math.min( value, previous[j - 1] + (a == c ? 0 : DictionaryBase.charDiff( a, c )) );
+                if( i > 1 && j > 1 && a == chars[start + i - 2] && word[j - 2] == c ) {
+                    value = Math.min( value, previous2[j - 2] + 3 );
+                }
+                row[j] = value;
+                min = Math.min( min, value );
+            }
+            if( min > bound && i > 1 ) {
+                // a transposed letter can reach back only one additional row
+                int min2 = Integer.MAX_VALUE;
+                for( int j = 0; j <= n; j++ ) {
+                    min2 = Math.min( min2, previous[j] );
+                }
+                if( min2 + 3 > bound ) {
+                    return bound + 1;
+                }
+            }
+            int[] temp = previous2;
+            previous2 = previous;
+            previous = row;
+            row = temp;
+        }
+        return previous[n];
+    }
+
+    /**
+     * Counts the words and the variants of a dictionary.
+     */
+    private static class WordCounter implements DictionaryBase.WordVisitor {
+
+        int  wordCount;
+
+        long charCount;
+
+        long entryCount;
+
+        public void word( char[] word, int length ) {
+            wordCount++;
+            charCount += length;
+            entryCount += variantCount( Math.min( length, PREFIX_LENGTH ) );
+        }
+    }
+
+    /**
+     * Fills the arrays of the index.
+     */
+    private static class IndexBuilder implements DictionaryBase.WordVisitor {
+
+        final char[] chars;
+
+        final int[]  starts;
+
+        final long[] entries;
+
+        private final char[] prefix = new char[PREFIX_LENGTH];
+
+        private int  charCount;
+
+        private int  wordCount;
+
+        private int  entryCount;
+
+        IndexBuilder( int charCount, int wordCount, int entryCount ) {
+            chars = new char[charCount];
+            starts = new int[wordCount + 1];
+            entries = new long[entryCount];
+        }
+
+        public void word( char[] word, int length ) {
+            System.arraycopy( word, 0, chars, charCount, length );
+            starts[wordCount] = charCount;
+            charCount += length;
+            starts[wordCount + 1] = charCount;
+
+            int prefixLength = Math.min( length, PREFIX_LENGTH );
+            for( int i = 0; i < prefixLength; i++ ) {
+                prefix[i] = Character.toLowerCase( word[i] );
+            }
+            for( int hash : variantHashes( prefix, prefixLength ) ) {
+                entries[entryCount++] = ((long)hash << 32) | wordCount;
+            }
+            wordCount++;
+        }
+    }
+}
@@ -23,6 +23,9 @@
 package com.inet.jortho;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.zip.*;
 
 /**
@@ -31,23 +34,76 @@ import java.util.zip.*;
  */
 final class Dictionary extends DictionaryBase{
 
+    /**
+     * Magic number at the start of a compiled dictionary ("JOCD").
+     */
+    static final int COMPILED_MAGIC = 0x4A4F4344;
+    
+    /**
+     * Version of the compiled dictionary format. Version 2 can include merged nodes.
+     */
+    static final int COMPILED_VERSION = 2;
+    
+    /**
+     * Size of the header of a compiled dictionary in bytes. The tree follows directly after the header.
+     */
+    static final int COMPILED_HEADER_SIZE = 28;
+    
+    /**
+     * Position in the tree while adding a word.
+     */
+    private int idx;
+    
+    /**
+     * The words that was added to the dictionary. Is null if there are no added words.
+     */
+    private volatile Dictionary userWords;
+    
+    /**
+     * The memory mapped tree if this dictionary was created from a MappedDictionary, else the tree is the array.
+     */
+    private final MappedDictionary mapped;
    
     /**
      * Create an empty Dictionary.
      */
     public Dictionary(){
+        mapped = null;
         tree = new char[10000];
         tree[size++] = LAST_CHAR;
     }
     
     
     /**
-     * Create an Dictionary from a serialize Dictionary. This is used from the DictionaryFactory.
+     * Create an Dictionary from a serialize Dictionary. This is used from the DictionaryFactory. The array is never
+     * modified, it can be used by other Dictionaries at the same time.
      * @see #toArray()
      * @see DictionaryFactory
      */
     public Dictionary(char[] tree){
         super(tree);
+        mapped = null;
+    }
+    
+    
+    /**
+     * Create a Dictionary that reads the tree from a memory mapped file. The words of the user can be added like to
+     * any other Dictionary.
+     * @param mapped the mapped compiled dictionary
+     * @see SpellChecker#setDictionaryMemoryMapped(boolean)
+     */
+    Dictionary(MappedDictionary mapped){
+        this.mapped = mapped;
+        size = mapped.size;
+    }
+    
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    char charAt(int index){
+        return mapped == null ? tree[index] : mapped.charAt( index );
     }
     
     
@@ -76,8 +132,8 @@ final class Dictionary extends DictionaryBase{
         deflater.setLevel(Deflater.BEST_COMPRESSION);
         DeflaterOutputStream zip = new DeflaterOutputStream(stream, deflater);
         for(int i=0; i<size; i++){
-            zip.write(tree[i]);
-            zip.write(tree[i] >> 8);
+            zip.write(charAt(i));
+            zip.write(charAt(i) >> 8);
         }
         
         zip.flush();
@@ -113,6 +169,68 @@ final class Dictionary extends DictionaryBase{
         zip.close();
         // Shrinken
         trimToSize();
+        invalidateDeletionIndex();
+    }
+    
+    
+    /**
+     * Save this dictionary in the compiled format. This is the flattened tree without any compression, in front of it
+     * a header with a magic number, the format version, two values that identify the word list from which the
+     * dictionary was created and the size of the tree. The stream is not closed.
+     * @param stream the OutputStream
+     * @param sourceLength the length of the word list or -1 if unknown
+     * @param sourceModified the last modification time of the word list or 0 if unknown
+     * @throws IOException if an I/O error occurs.
+     * @see #loadCompiled(InputStream, long, long)
+     */
+    public void saveCompiled(OutputStream stream, long sourceLength, long sourceModified) throws IOException{
+        DataOutputStream output = new DataOutputStream( new BufferedOutputStream( stream ) );
+        output.writeInt( COMPILED_MAGIC );
+        output.writeInt( COMPILED_VERSION );
+        output.writeLong( sourceLength );
+        output.writeLong( sourceModified );
+        output.writeInt( size );
+        char[] data = mapped == null ? tree : toArray();
+        byte[] buffer = new byte[16384];
+        for( int i = 0; i < size; ) {
+            int count = Math.min( buffer.length / 2, size - i );
+            ByteBuffer.wrap( buffer ).asCharBuffer().put( data, i, count );
+            output.write( buffer, 0, count * 2 );
+            i += count;
+        }
+        output.flush();
+    }
+    
+    
+    /**
+     * Load the flattened tree of a compiled dictionary. There is no need for a DictionaryFactory.
+     * @param stream the InputStream, it is not closed
+     * @param sourceLength the expected length of the word list or -1 if it should not be checked
+     * @param sourceModified the expected last modification time of the word list or 0 if it should not be checked
+     * @return the tree or null if the stream does not contain a compiled dictionary or if it was created from another
+     *         word list
+     * @throws IOException if an I/O error occurs.
+     * @see #saveCompiled(OutputStream, long, long)
+     */
+    static char[] loadCompiled(InputStream stream, long sourceLength, long sourceModified) throws IOException{
+        DataInputStream input = new DataInputStream( new BufferedInputStream( stream ) );
+        if( input.readInt() != COMPILED_MAGIC || input.readInt() != COMPILED_VERSION ) {
+            return null;
+        }
+        long length = input.readLong();
+        long modified = input.readLong();
+        if( (sourceLength != -1 && length != sourceLength) || (sourceModified != 0 && modified != sourceModified) ) {
+            return null;
+        }
+        char[] tree = new char[input.readInt()];
+        byte[] buffer = new byte[16384];
+        for( int i = 0; i < tree.length; ) {
+            int count = Math.min( buffer.length / 2, tree.length - i );
+            input.readFully( buffer, 0, count * 2 );
+            ByteBuffer.wrap( buffer ).asCharBuffer().get( tree, i, count );
+            i += count;
+        }
+        return tree;
     }
     
     
@@ -132,8 +250,63 @@ final class Dictionary extends DictionaryBase{
     /**
      * Add a word to the tree. If it already exist then it has no effect. 
      * @param word the new word.
+     * @see #addAll(Collection)
      */
     public void add(String word){
+        addAll( Collections.singleton( word ) );
+    }
+
+
+    /**
+     * Add some words to this dictionary. The words are not inserted in the large tree of the dictionary, that would
+     * need to move the half of the tree for every character. They are saved in a small separate dictionary that is
+     * searched additionally. The small dictionary is copied and replaced at the end. That lookups from other threads
+     * see the words before or after the change but never a partial modification.
+     * @param words the new words
+     */
+    public synchronized void addAll(Collection<String> words){
+        Dictionary copy = userWords == null ? new Dictionary() : new Dictionary( userWords.toArray() );
+        for( String word : words ) {
+            if( word.length() > 0 && !super.exist( word ) ) {
+                copy.insertWord( word );
+            }
+        }
+        copy.trimToSize();
+        userWords = copy;
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean exist(String word){
+        if( super.exist( word ) ) {
+            return true;
+        }
+        Dictionary words = userWords;
+        return words != null && words.exist( word );
+    }
+
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    void searchSuggestions(String word, Suggestions list){
+        super.searchSuggestions( word, list );
+        Dictionary words = userWords;
+        if( words != null ) {
+            words.searchSuggestions( word, list );
+        }
+    }
+
+
+    /**
+     * Add a word to the tree of this instance.
+     * @param word the new word.
+     */
+    private void insertWord(String word){
         idx = 0;
         for(int i=0; i<word.length(); i++){
             char c = word.charAt(i);
@@ -142,7 +315,7 @@ final class Dictionary extends DictionaryBase{
                 tree[idx+1] |= 0x8000;
                 return;
             }
-            int nextIdx = readIndex();
+            int nextIdx = readIndex( idx );
             if(nextIdx == 0){
                 idx = createNewNode();
             }else{
@@ -158,6 +331,12 @@ final class Dictionary extends DictionaryBase{
      */
     public char[] toArray(){
         char[] puffer = new char[size];
+        if( mapped != null ) {
+            for( int i = 0; i < size; i++ ) {
+                puffer[i] = mapped.charAt( i );
+            }
+            return puffer;
+        }
         System.arraycopy(tree, 0, puffer, 0, size);
         return puffer; 
     }
@@ -167,7 +346,8 @@ final class Dictionary extends DictionaryBase{
      * Get the size of chars that this dictionary need in memory.
      */
     public int getDataSize(){
-        return size;
+        Dictionary words = userWords;
+        return words == null ? size : size + words.getDataSize();
     }
     
     
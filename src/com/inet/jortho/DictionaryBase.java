@@ -31,11 +31,17 @@ abstract class DictionaryBase {
 
     protected char[] tree;
     protected int size;
-    protected int idx;
     
     
     protected static final char LAST_CHAR = 0xFFFF;
     
+    /** the optional index for the search of suggestions, is created lazy if a budget is set */
+    private volatile DeletionIndex index;
+    private long indexBudget;
+    private boolean indexLoading;
+    /** is increased on every change of the index that an index of the old words is not set from the background */
+    private int indexVersion;
+    
     
     DictionaryBase(char[] tree){
         this.tree = tree;
@@ -51,24 +57,22 @@ abstract class DictionaryBase {
     
     
     /**
-     * Check if the word exist in this dictinary.
+     * Check if the word exist in this dictinary. The lookup has no state in the dictionary, it can be called from
+     * multiple threads at the same time.
      * @param word the word to check. Can't be null.
      * @return true if the word exist.
      */
     public boolean exist(String word){
-        idx = 0;
+        int idx = 0;
         for(int i=0; i<word.length(); i++){
-            char c = word.charAt(i);
-            while(idx<size && tree[idx] < c){
-                idx += 3;
-            }
-            if((idx>=size || tree[idx] != c)){
+            idx = searchChar( word.charAt(i), idx );
+            if( idx < 0 ){
                 return false;
             }
-            if( i == word.length() - 1 && isWordMatch() ) {
+            if( i == word.length() - 1 && isWordMatch( idx ) ) {
                 return true;
             }
-            idx = readIndex();
+            idx = readIndex( idx );
             if(idx <= 0) return false;
         }
         return false;
@@ -77,169 +81,305 @@ abstract class DictionaryBase {
     
     
     /**
-     * Returns a list of suggestions if the word is not in the dictionary.
+     * Returns a list of suggestions if the word is not in the dictionary. The search has no state in the dictionary,
+     * it can be called from multiple threads at the same time.
      * @param word the wrong spelled word. Can't be null.
      * @return a list of class Suggestion.
      * @see Suggestion
      */
     public List<Suggestion> searchSuggestions(String word){
+        return searchSuggestions( word, Integer.MAX_VALUE );
+    }
+    
+    
+    /**
+     * Returns a list of the best suggestions if the word is not in the dictionary. A small limit make the search
+     * faster because branches of the tree that can not be better as the found suggestions are skipped.
+     * @param word the wrong spelled word. Can't be null.
+     * @param limit the max count of suggestions
+     * @return a list of class Suggestion sorted by the dissimilarity.
+     * @see Suggestion
+     */
+    public List<Suggestion> searchSuggestions(String word, int limit){
         if(word.length() == 0 || exist(word)){
             return new ArrayList<Suggestion>();
         }
-        Suggestions suggesions = new Suggestions( Math.min( 20, 4+word.length() ) );
-        idx = 0;
-        searchSuggestions( suggesions, word, 0, 0, 0);
-        List<Suggestion> list = suggesions.getlist();
-        Collections.sort( list );
-        return list;
+        Suggestions suggesions = new Suggestions( Math.min( 20, 4+word.length() ), limit );
+        searchSuggestions( word, suggesions );
+        return suggesions.getlist();
     }
     
     
     /**
-     * It will search with different rules for similar words.
-     * For every rule there are a different difference. The smaller the difference that so similarer.
-     * This method is calling recursive it self.
-     * @param list Container for found words
-     * @param chars until charPosition already map characters, after the part of the original word that still need to map.
-     * @param charPosition character position in char array
-     * @param lastIdx position in the index (dictionary) to the current character position
-     * @param diff the dissimilar up to the current character position
+     * Search the suggestions for a word with the index or in the tree.
+     * @param word the wrong spelled word.
+     * @param list the container for the found suggestions
      */
-    private void searchSuggestions( Suggestions list, CharSequence chars, int charPosition, int lastIdx, int diff){
-        if(diff > list.getMaxDissimilarity()){
-            return;
+    void searchSuggestions(String word, Suggestions list){
+        DeletionIndex deletionIndex = getDeletionIndex();
+        if( deletionIndex != null ) {
+            deletionIndex.search( word, list );
+        } else {
+            new SuggestionSearch( word, list ).search( 0, 0 );
         }
-        // First with the correct letters to go on 
-        idx = lastIdx;
-        char currentChar = chars.charAt(charPosition);
-        if(searchChar(currentChar)){
-            if( isWordMatch() ) {
-                if(charPosition+1 == chars.length()){
-                    // exact match at this character position
-                    list.add( new Suggestion(chars, diff));
-                }else{
-                    // a shorter match, we need to cut the string
-                    int length = charPosition+1;
-                    CharSequence chars2 = chars.subSequence( 0, length );
-                    list.add( new Suggestion(chars2, diff + (chars.length()-length)*5));
-                }
+    }
+    
+    
+    /**
+     * Use an index for the search of suggestions. The index find only words with up to two wrong, missing,
+     * additional or transposed letters but it is much faster as the search in the tree. It need a multiple of the
+     * memory of the dictionary. If the index would need more memory as the budget then it is not used.
+     * @param memoryBudget the max count of bytes for the index, 0 disables the index
+     * @param lazy true, the index is created in the background on the first search; false, it is created now
+     */
+    void setDeletionIndex( long memoryBudget, boolean lazy ){
+        DeletionIndex deletionIndex = null;
+        if( memoryBudget > 0 && !lazy ) {
+            deletionIndex = DeletionIndex.create( this, memoryBudget );
+        }
+        synchronized( this ) {
+            // an index that does not fit in the budget is not tried again
+            indexBudget = lazy || deletionIndex != null ? memoryBudget : 0;
+            index = deletionIndex;
+            indexLoading = false;
+            indexVersion++;
+        }
+    }
+    
+    
+    /**
+     * Remove the index for the search of suggestions after a modification of the words in the tree. It is created
+     * again in the background on the next search. An index that is currently created from the old words is discarded.
+     */
+    synchronized void invalidateDeletionIndex(){
+        index = null;
+        indexLoading = false;
+        indexVersion++;
+    }
+    
+    
+    /**
+     * Get the index for the search of suggestions. If it does not exist but there is a budget then it is created in
+     * a background thread. Until it is ready the tree is searched.
+     * @return the index or null
+     */
+    private DeletionIndex getDeletionIndex(){
+        DeletionIndex deletionIndex = index;
+        if( deletionIndex != null ) {
+            return deletionIndex;
+        }
+        synchronized( this ) {
+            if( indexBudget <= 0 || indexLoading ) {
+                return null;
             }
-            idx = readIndex();
-            if( idx > 0 ) {
-                // more characters in the tree
-                if(charPosition+1 == chars.length()){
-                    searchSuggestionsLonger( list, chars, idx, diff + 5);
-                } else {
-                    searchSuggestions( list, chars, charPosition + 1, idx, diff );
+            indexLoading = true;
+            final long budget = indexBudget;
+            final int version = indexVersion;
+            Thread thread = new Thread( new Runnable() {
+                public void run() {
+                    DeletionIndex created = DeletionIndex.create( DictionaryBase.this, budget );
+                    synchronized( DictionaryBase.this ) {
+                        if( version != indexVersion ) {
+                            // the words or the budget was changed in the meantime
+                            return;
+                        }
+                        indexLoading = false;
+                        if( created == null ) {
+                            // does not fit in the budget, never try it again
+                            indexBudget = 0;
+                        }
+                        index = created;
+                    }
                 }
+            }, "JOrtho suggestion index" );
+            thread.setPriority( Thread.NORM_PRIORITY - 1 );
+            thread.setDaemon( true );
+            thread.start();
+        }
+        return null;
+    }
+    
+    
+    /**
+     * Is called for every word of the dictionary.
+     * @see DictionaryBase#walkWords(WordVisitor)
+     */
+    interface WordVisitor {
+        /**
+         * @param word a buffer with the characters of the word, is reused for the next word
+         * @param length the length of the word
+         */
+        void word( char[] word, int length );
+    }
+    
+    
+    /**
+     * Call the visitor for every word in the dictionary in the order of the tree.
+     * @param visitor the visitor
+     */
+    void walkWords( WordVisitor visitor ){
+        walkWords( visitor, 0, new char[64], 0 );
+    }
+    
+    private char[] walkWords( WordVisitor visitor, int node, char[] buffer, int length ){
+        for( int idx = node; idx < size && charAt(idx) < LAST_CHAR; idx += 3 ) {
+            if( length == buffer.length ) {
+                char[] temp = new char[2 * length];
+                System.arraycopy( buffer, 0, temp, 0, length );
+                buffer = temp;
+            }
+            buffer[length] = charAt(idx);
+            if( isWordMatch( idx ) ) {
+                visitor.word( buffer, length + 1 );
+            }
+            int nextIdx = readIndex( idx );
+            if( nextIdx > 0 ) {
+                buffer = walkWords( visitor, nextIdx, buffer, length + 1 );
             }
         }
-
+        return buffer;
+    }
+    
+    
+    /**
+     * Search similar words with a weighted Damerau-Levenshtein distance. The tree is walked depth first, for every
+     * depth there is one row of the distance matrix. The differences are 3 for transposed letters, 5 for an
+     * additional or missing letter and charDiff() for a wrong letter. Only a band around the diagonal is calculated
+     * and a branch is skipped if every value of its row is larger as the current bound of the suggestion list. Because
+     * transposed letters reach back two rows also the previous row is considered for the skipping.
+     */
+    private class SuggestionSearch {
         
-        // transposed letters and additional letter
-        if(charPosition+1 < chars.length()){
-            idx = lastIdx;
-            currentChar = chars.charAt(charPosition+1);
-            if(searchChar(currentChar)){
-                int tempIdx = idx;
-                
-                //transposed letters (German - Buchstabendreher)
-                idx = readIndex();
-                if( idx > 0 ) {
-                    StringBuilder buffer = new StringBuilder( chars );
-                    buffer.setCharAt( charPosition+1, chars.charAt( charPosition ) );
-                    buffer.setCharAt( charPosition, currentChar );
-                    searchSuggestions( list, buffer, charPosition+1, idx, diff+3);
-                }
-                
-                // Additional character in the misspelled word
-                idx = tempIdx;
-                StringBuilder buffer = new StringBuilder();
-                buffer.append( chars, 0, charPosition );
-                buffer.append( chars, charPosition+1, chars.length() );
-                searchSuggestions( list, buffer, charPosition, lastIdx, diff+5);
+        private static final int INFINITE = Integer.MAX_VALUE / 2;
+        
+        private final char[] word;
+        private final Suggestions list;
+        /** the max distance of a cell to the diagonal */
+        private final int band;
+        /** the characters of the current path in the tree */
+        private final char[] buffer;
+        private final int[][] rows;
+        /** the smallest value of every row */
+        private final int[] mins;
+        
+        SuggestionSearch( String word, Suggestions list ) {
+            this.word = word.toCharArray();
+            this.list = list;
+            band = list.getMaxDissimilarity() / 5;
+            buffer = new char[this.word.length + band];
+            rows = new int[buffer.length + 1][this.word.length + 1];
+            mins = new int[buffer.length + 1];
+            int[] row = rows[0];
+            for( int j = 0; j < row.length; j++ ) {
+                row[j] = j <= band ? j * 5 : INFINITE;
             }
         }
-
-        // Missing letters, we need to add one character
-        {
-            int tempIdx = idx = lastIdx;
-            while( idx < size && tree[idx] < LAST_CHAR ) {
-                char newChar = tree[idx];
-                idx = readIndex();
-                if( idx > 0 && newChar != currentChar) {
-                    StringBuilder buffer = new StringBuilder( chars );
-                    buffer.insert( charPosition, newChar );
-                    searchSuggestions( list, buffer, charPosition + 1, idx, diff + 5 );
+        
+        /**
+         * Search all characters of a node.
+         * @param node the start of the node in the tree
+         * @param depth the count of characters before the node
+         */
+        void search( int node, int depth ) {
+            for( int idx = node; idx < size && charAt(idx) < LAST_CHAR; idx += 3 ) {
+                char c = charAt(idx);
+                buffer[depth] = c;
+                int min = mins[depth + 1] = calculateRow( depth + 1, c );
+                int bound = list.getMaxDissimilarity();
+                int diff = rows[depth + 1][word.length];
+                if( diff <= bound && isWordMatch( idx ) ) {
+                    list.add( new Suggestion( new String( buffer, 0, depth + 1 ), diff ) );
+                    bound = list.getMaxDissimilarity();
+                }
+                if( Math.min( min, mins[depth] + 3 ) <= bound && depth + 1 < buffer.length ) {
+                    int nextIdx = readIndex( idx );
+                    if( nextIdx > 0 ) {
+                        search( nextIdx, depth + 1 );
+                    }
                 }
-                idx = tempIdx += 3;
             }
         }
         
-        // Typos - wrong letters (One character is replaced with any character)
-        if(charPosition < chars.length()){
-            currentChar = chars.charAt(charPosition);
-            int tempIdx = idx = lastIdx;
-            while( idx < size && tree[idx] < LAST_CHAR ) {
-                if( isWordMatch() ){
-                    StringBuilder buffer = new StringBuilder();
-                    buffer.append( chars, 0, charPosition );
-                    buffer.append( tree[idx] );
-                    list.add( new Suggestion( buffer, diff + 5 + (chars.length()-buffer.length())*5 ) );
-                }
-                if(charPosition + 1 < chars.length()){
-                    char newChar = tree[idx];
-                    idx = readIndex();
-                    if( idx > 0 && newChar != currentChar) {
-                        StringBuilder buffer = new StringBuilder( chars );
-                        buffer.setCharAt( charPosition, newChar );
-                        searchSuggestions( list, buffer, charPosition + 1, idx, diff + charDiff( currentChar, newChar ) );
+        /**
+         * Calculate the distances of the word to the current path.
+         * @param depth the length of the path
+         * @param c the last character of the path
+         * @return the smallest value of the row
+         */
+        private int calculateRow( int depth, char c ) {
+            int[] row = rows[depth];
+            int[] previous = rows[depth - 1];
+            int first = Math.max( 0, depth - band );
+            int last = Math.min( word.length, depth + band );
+            int min = INFINITE;
+            for( int j = 0; j < first; j++ ) {
+                row[j] = INFINITE;
+            }
+            for( int j = first; j <= last; j++ ) {
+                // additional character in the path
+                int value = previous[j] + 5;
+                if( j > 0 ) {
+                    char a = word[j - 1];
+                    // missing character in the path
+                    value = Math.min( value, row[j - 1] + 5 );
+                    // equal or wrong character
+                    value = Math.min( value, previous[j - 1] + (a == c ? 0 : charDiff( a, c )) );
+                    // transposed letters
+                    if( j > 1 && depth > 1 && a == buffer[depth - 2] && word[j - 2] == c ) {
+                        value = Math.min( value, rows[depth - 2][j - 2] + 3 );
                     }
                 }
-                idx = tempIdx += 3;
+                row[j] = value;
+                min = Math.min( min, value );
             }
-        }
-    }
-    
-    private void searchSuggestionsLonger( Suggestions list, CharSequence chars, int lastIdx, int diff){
-        int tempIdx = idx = lastIdx;
-        while(idx<size && tree[idx] < LAST_CHAR){
-            StringBuilder buffer = new StringBuilder();
-            buffer.append( chars );
-            buffer.append( tree[idx] );
-                searchSuggestions( list, buffer, chars.length(), idx, diff );
-            idx = tempIdx += 3;
+            for( int j = last + 1; j < row.length; j++ ) {
+                row[j] = INFINITE;
+            }
+            return min;
         }
     }
     
     /**
-     * Search if the character exist in the current node. If found then the variable <code>idx</code> point to the location.
-     * If not found then it point on the next character (char value) item in the node. 
+     * Search if the character exist in a node.
      * @param c the searching character
-     * @return true if found
+     * @param idx the start of the node
+     * @return the location of the character or -1 if not found
      */
-    private boolean searchChar(char c){
-        while(idx<size && tree[idx] < c){
+    private int searchChar(char c, int idx){
+        while(idx<size && charAt(idx) < c){
             idx += 3;
         }
-        if((idx>=size || tree[idx] != c)){
-            return false;
+        if((idx>=size || charAt(idx) != c)){
+            return -1;
         }
-        return true;
+        return idx;
+    }
+    
+    /**
+     * Read a single character of the flattened tree. All lookups go through this method so that a subclass can hold
+     * the tree in another storage than a char array.
+     * @param index the position in the tree
+     * @return the character
+     * @see MappedDictionary
+     */
+    char charAt(int index){
+        return tree[index];
     }
     
     /**
-     * Check if on the current item position a word ends.
+     * Check if on the item position a word ends.
+     * @param idx the location of a character item
      */
-    private boolean isWordMatch(){
-        return (tree[idx + 1] & 0x8000) > 0;
+    private boolean isWordMatch(int idx){
+        return (charAt(idx + 1) & 0x8000) > 0;
     }
     
     /**
      * Read the offset in the tree of the next character. 
+     * @param idx the location of a character item
      */
-    final int readIndex(){
-        return ((tree[idx+1] & 0x7fff)<<16) + tree[idx+2]; 
+    final int readIndex(int idx){
+        return ((charAt(idx+1) & 0x7fff)<<16) + charAt(idx+2); 
     }
     
     /**
@@ -249,7 +389,7 @@ abstract class DictionaryBase {
      * @param b second char
      * @return the dissimilarity
      */
-    private int charDiff( char a, char b ) {
+    static int charDiff( char a, char b ) {
         a = Character.toLowerCase( a );
         b = Character.toLowerCase( b );
 
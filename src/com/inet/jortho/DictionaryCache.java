@@ -0,0 +1,296 @@
+/*
+ *  JOrtho
+ *
+ *  Copyright (C) 2005-2010 by i-net software
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License as 
+ *  published by the Free Software Foundation; either version 2 of the
+ *  License, or (at your option) any later version. 
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ *  USA.
+ */
+package com.inet.jortho;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Holds the compiled dictionaries (the flattened tree of a word list) of the recently used languages. A compiled
+ * dictionary is searched first in memory, then in the cache directory and only if it is not found there the word
+ * list is loaded with a DictionaryFactory. The returned arrays are shared and must never be modified.
+ * <p>
+ * The class lock only guards the maps. A dictionary is loaded without holding it, so a slow load of one language
+ * does not block the other languages. Concurrent requests of the same word list wait for the same load.
+ */
+class DictionaryCache {
+
+    private static final String EXTENSION = ".compiled";
+
+    private static int maxSize = 3;
+
+    private static volatile File directory;
+
+    private static final LinkedHashMap<String, char[]> recent = new LinkedHashMap<String, char[]>( 8, 0.75f, true ) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, char[]> eldest ) {
+            return size() > maxSize;
+        }
+    };
+
+    /** the loads of the compiled dictionaries that are running now */
+    private static final Map<String, FutureTask<char[]>> loading = new HashMap<String, FutureTask<char[]>>();
+
+    /** the creations of the compiled dictionary files for memory mapping that are running now */
+    private static final Map<String, FutureTask<MappedDictionary>> mapping = new HashMap<String, FutureTask<MappedDictionary>>();
+
+    /**
+     * There is no instance needed of DictionaryCache. All methods are static.
+     */
+    private DictionaryCache(){/*nothing*/}
+
+    /**
+     * Set the directory where the compiled dictionaries are saved between sessions.
+     * @param directory the directory or null if the compiled dictionaries should only be hold in memory
+     */
+    static void setDirectory( File directory ) {
+        DictionaryCache.directory = directory;
+    }
+
+    /**
+     * Set the number of compiled dictionaries that are hold in memory.
+     * @param size the count, 0 disables the memory cache
+     */
+    static synchronized void setMaxSize( int size ) {
+        if( size < 0 ) {
+            throw new IllegalArgumentException();
+        }
+        maxSize = size;
+        while( recent.size() > maxSize ) {
+            recent.remove( recent.keySet().iterator().next() );
+        }
+    }
+
+    /**
+     * Get the compiled dictionary of a word list.
+     * @param wordList the URL of a compressed word list like "dictionary_en.ortho"
+     * @return the flattened tree, must not be modified
+     * @throws IOException if the word list can not be read
+     */
+    static char[] getTree( final URL wordList ) throws IOException {
+        final String key = wordList.toExternalForm();
+        return loadOnce( recent, loading, key, new Callable<char[]>() {
+            public char[] call() throws IOException {
+                char[] tree = loadTree( wordList );
+                synchronized( DictionaryCache.class ) {
+                    if( maxSize > 0 ) {
+                        recent.put( key, tree );
+                    }
+                }
+                return tree;
+            }
+        } );
+    }
+
+    /**
+     * Run a load only once for concurrent requests of the same key. The first caller runs the loader without holding
+     * the class lock, the other callers wait for its result. A failed load is not remembered, the next request tries
+     * it again.
+     * @param loaded the results of completed loads or null, the loader is responsible to add to it
+     * @param pending the running loads
+     * @param key the key of the load
+     * @param loader the load
+     * @return the result of the load
+     * @throws IOException if the load failed
+     */
+    private static <T> T loadOnce( Map<String, T> loaded, Map<String, FutureTask<T>> pending, String key, Callable<T> loader ) throws IOException {
+        FutureTask<T> task;
+        boolean owner = false;
+        synchronized( DictionaryCache.class ) {
+            T value = loaded == null ? null : loaded.get( key );
+            if( value != null ) {
+                return value;
+            }
+            task = pending.get( key );
+            if( task == null ) {
+                task = new FutureTask<T>( loader );
+                pending.put( key, task );
+                owner = true;
+            }
+        }
+        try {
+            if( owner ) {
+                task.run();
+            }
+            return task.get();
+        } catch( InterruptedException ex ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while loading " + key );
+        } catch( ExecutionException ex ) {
+            Throwable cause = ex.getCause();
+            if( cause instanceof IOException ) {
+                throw (IOException)cause;
+            }
+            if( cause instanceof RuntimeException ) {
+                throw (RuntimeException)cause;
+            }
+            if( cause instanceof Error ) {
+                throw (Error)cause;
+            }
+            throw new IOException( String.valueOf( cause ) );
+        } finally {
+            if( owner ) {
+                synchronized( DictionaryCache.class ) {
+                    pending.remove( key );
+                }
+            }
+        }
+    }
+
+    /**
+     * Load a compiled dictionary from the cache directory or create it from the word list.
+     * @param wordList the URL of a compressed word list like "dictionary_en.ortho"
+     * @return the flattened tree
+     * @throws IOException if the word list can not be read
+     */
+    private static char[] loadTree( URL wordList ) throws IOException {
+        char[] tree = null;
+        URLConnection conn = wordList.openConnection();
+        long sourceLength = conn.getContentLength();
+        long sourceModified = conn.getLastModified();
+        File file = getFile( wordList );
+        if( file != null && file.isFile() ) {
+            try {
+                InputStream input = new FileInputStream( file );
+                try {
+                    tree = Dictionary.loadCompiled( input, sourceLength, sourceModified );
+                } finally {
+                    input.close();
+                }
+            } catch( IOException ex ) {
+                // a damaged file is created again
+                SpellChecker.getMessageHandler().handleException( ex );
+            }
+        }
+
+        if( tree == null ) {
+            DictionaryFactory factory = new DictionaryFactory();
+            factory.loadWordList( wordList );
+            Dictionary dictionary = factory.create();
+            tree = dictionary.tree;
+            if( file != null ) {
+                save( dictionary, file, sourceLength, sourceModified );
+            }
+        }
+        return tree;
+    }
+
+    /**
+     * Get a memory mapped dictionary of a word list. The compiled dictionary in the cache directory is created if it
+     * does not exist or is outdated. The tree is not hold in the memory cache.
+     * @param wordList the URL of a compressed word list like "dictionary_en.ortho"
+     * @return the dictionary or null if there is no cache directory
+     * @throws IOException if the word list can not be read
+     * @see #setDirectory(File)
+     */
+    static MappedDictionary getMappedDictionary( final URL wordList ) throws IOException {
+        final File file = getFile( wordList );
+        if( file == null ) {
+            return null;
+        }
+        return loadOnce( null, mapping, file.getPath(), new Callable<MappedDictionary>() {
+            public MappedDictionary call() throws IOException {
+                return mapFile( wordList, file );
+            }
+        } );
+    }
+
+    /**
+     * Map the compiled dictionary file of a word list, create it before if needed.
+     * @param wordList the URL of the word list
+     * @param file the compiled dictionary in the cache directory
+     * @return the dictionary
+     * @throws IOException if the word list can not be read
+     */
+    private static MappedDictionary mapFile( URL wordList, File file ) throws IOException {
+        URLConnection conn = wordList.openConnection();
+        long sourceLength = conn.getContentLength();
+        long sourceModified = conn.getLastModified();
+        if( file.isFile() ) {
+            MappedDictionary dictionary = MappedDictionary.map( file, sourceLength, sourceModified );
+            if( dictionary != null ) {
+                return dictionary;
+            }
+        }
+        DictionaryFactory factory = new DictionaryFactory();
+        factory.loadWordList( wordList );
+        save( factory.create(), file, sourceLength, sourceModified );
+        return new MappedDictionary( file );
+    }
+
+    /**
+     * Get the file of the compiled dictionary in the cache directory.
+     * @param wordList the URL of the word list
+     * @return the file or null if there is no cache directory
+     */
+    private static File getFile( URL wordList ) {
+        File dir = directory;
+        if( dir == null ) {
+            return null;
+        }
+        String name = wordList.getPath();
+        name = name.substring( name.lastIndexOf( '/' ) + 1 );
+        return new File( dir, name + EXTENSION );
+    }
+
+    /**
+     * Write a compiled dictionary to the cache directory. It is written to a temporary file with a unique name first so
+     * that a concurrent or interrupted write never leaves a truncated file.
+     */
+    private static void save( Dictionary dictionary, File file, long sourceLength, long sourceModified ) {
+        File temp = null;
+        try {
+            temp = File.createTempFile( file.getName(), ".tmp", file.getParentFile() );
+            OutputStream output = new FileOutputStream( temp );
+            try {
+                dictionary.saveCompiled( output, sourceLength, sourceModified );
+            } finally {
+                output.close();
+            }
+            if( !temp.renameTo( file ) ) {
+                file.delete();
+                if( !temp.renameTo( file ) ) {
+                    temp.delete();
+                }
+            }
+        } catch( IOException ex ) {
+            if( temp != null ) {
+                temp.delete();
+            }
+            SpellChecker.getMessageHandler().handleException( ex );
+        }
+    }
+}
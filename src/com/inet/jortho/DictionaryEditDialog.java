@@ -35,6 +35,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.Locale;
 
 import javax.swing.*;
 
@@ -48,10 +49,12 @@ class DictionaryEditDialog extends JDialog{
     
     private final JList list;
     private final JButton delete;
+    private final Locale locale;
     private boolean isModify;
 
-    DictionaryEditDialog( JDialog parent ){
+    DictionaryEditDialog( JDialog parent, Locale locale ){
         super( parent, Utils.getResource("userDictionary"), true );
+        this.locale = locale;
         setDefaultCloseOperation( WindowConstants.DISPOSE_ON_CLOSE );
         Container content = getContentPane();
         content.setLayout( new GridBagLayout() );
@@ -102,7 +105,7 @@ class DictionaryEditDialog extends JDialog{
     private void loadWordList( DefaultListModel data ){
         UserDictionaryProvider provider = SpellChecker.getUserDictionaryProvider();
         if( provider != null ) {
-            Iterator<String> userWords = provider.getWords( SpellChecker.getCurrentLocale() );
+            Iterator<String> userWords = provider.getWords( locale );
             if( userWords != null ) {
                 ArrayList<String> wordList = new ArrayList<String>();
                 while(userWords.hasNext()){
@@ -152,7 +155,7 @@ class DictionaryEditDialog extends JDialog{
                     }
                     builder.append( model.getElementAt(i) );
                 }
-                provider.setUserWords( builder.toString() );
+                provider.setUserWords( builder.toString(), locale );
             }
             // reload the dictionary
             JMenu menu = SpellChecker.createLanguagesMenu( null );
@@ -24,6 +24,7 @@ package com.inet.jortho;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.Iterator;
 
 /** 
@@ -34,9 +35,12 @@ import java.util.Iterator;
  */
 class DictionaryFactory {
 
+    /** the words of a sorted list are written directly to the flattened tree, is null after the first unsorted word */
+    private SortedTreeBuilder sorted = new SortedTreeBuilder( true );
     private final Node root = new Node( (char)0 );
     private char[] tree;
     private int size;
+    private boolean minimize = true;
     
     /**
      * Empty Constructor.
@@ -46,6 +50,20 @@ class DictionaryFactory {
     }
     
     
+    /**
+     * Set if equal suffixes of the words should be saved only once. The tree is then a directed acyclic word graph
+     * which needs much less memory for languages with many word forms. The lookups are not affected. This must be
+     * called before the first word is added. The default is true.
+     * @param minimize true, merge the equal nodes
+     */
+    void setMinimize( boolean minimize ) {
+        this.minimize = minimize;
+        if( sorted != null ) {
+            sorted = new SortedTreeBuilder( minimize );
+        }
+    }
+    
+    
     /**
      * Load the directory from a compressed list of words with UTF8 encoding. The words must be delimited with
      * newlines. This method can be called multiple times.
@@ -71,10 +89,33 @@ class DictionaryFactory {
     }
     
     /**
-     * Add a word to the tree. If it already exist then it has no effect. 
+     * Add a word to the tree. If it already exist then it has no effect. As long as the words are added in sorted
+     * order they are written directly to the flattened tree. On the first word that is not sorted all words are moved
+     * to the slower node tree.
      * @param word the new word.
      */
     public void add(String word){
+        if( sorted != null ) {
+            if( sorted.add( word ) ) {
+                return;
+            }
+            // an unsorted word, for example from a user dictionary
+            Dictionary dictionary = new Dictionary( sorted.create() );
+            sorted = null;
+            dictionary.walkWords( new DictionaryBase.WordVisitor() {
+                public void word( char[] chars, int length ) {
+                    addToNodes( new String( chars, 0, length ) );
+                }
+            } );
+        }
+        addToNodes( word );
+    }
+    
+    /**
+     * Add a word to the node tree.
+     * @param word the new word.
+     */
+    private void addToNodes(String word){
         Node node = root;
         for(int i=0; i<word.length(); i++){
             char c = word.charAt(i);
@@ -93,6 +134,9 @@ class DictionaryFactory {
      * @return a Dictionary object.
      */
     public Dictionary create(){
+        if( sorted != null ) {
+            return new Dictionary( sorted.create() );
+        }
         tree = new char[10000];
         
         root.save( this );
@@ -102,7 +146,18 @@ class DictionaryFactory {
         System.arraycopy( tree, 0, temp, 0, size );
         tree = temp;
         
-        return new Dictionary(tree);
+        Dictionary dictionary = new Dictionary(tree);
+        if( minimize ) {
+            // the words of the tree are in sorted order
+            final SortedTreeBuilder builder = new SortedTreeBuilder( true );
+            dictionary.walkWords( new DictionaryBase.WordVisitor() {
+                public void word( char[] chars, int length ) {
+                    builder.add( new String( chars, 0, length ) );
+                }
+            } );
+            dictionary = new Dictionary( builder.create() );
+        }
+        return dictionary;
     }
     
     /**
@@ -117,6 +172,218 @@ class DictionaryFactory {
         }
     }
     
+    /**
+     * Create the flattened tree from a sorted word list without a node tree. Only the nodes on the path of the last
+     * word are open. If the next word leaves a node then the node can not change anymore and is appended to the tree.
+     * The children are therefore saved before the parent node. At the end the root node is moved to the start.
+     * <p>
+     * Because the children of a closed node are already final, two nodes with equal entries have also equal subtrees.
+     * If minimize is set then a node that is equal to a node in the tree is not appended but the offset of the
+     * existing node is used. Every suffix that is common to some words is then saved only once.
+     */
+    private final static class SortedTreeBuilder {
+        
+        /** the entries of the open nodes, the node on level k include the k-th character of the last word */
+        private char[][] levels = new char[0][];
+        private int[] counts = new int[0];
+        private char[] tree = new char[10000];
+        private int size;
+        private String last = "";
+        /** hash table with the offsets plus 1 of the saved nodes, is null if the nodes are not merged */
+        private int[] nodes;
+        private int nodeCount;
+        
+        SortedTreeBuilder( boolean minimize ) {
+            if( minimize ) {
+                nodes = new int[1 << 12];
+            }
+        }
+        
+        /**
+         * Add the next word of the sorted list.
+         * @param word the word
+         * @return false if the word is smaller as the last word
+         */
+        boolean add( String word ) {
+            int compare = word.compareTo( last );
+            if( compare <= 0 ) {
+                // a duplicate has no effect
+                return compare == 0;
+            }
+            int length = word.length();
+            int common = 0;
+            int max = Math.min( length, last.length() );
+            while( common < max && word.charAt( common ) == last.charAt( common ) ) {
+                common++;
+            }
+            for( int k = last.length() - 1; k > common; k-- ) {
+                close( k );
+            }
+            if( length > levels.length ) {
+                char[][] tempLevels = new char[Math.max( length, 2 * levels.length )][];
+                System.arraycopy( levels, 0, tempLevels, 0, levels.length );
+                levels = tempLevels;
+                int[] tempCounts = new int[tempLevels.length];
+                System.arraycopy( counts, 0, tempCounts, 0, counts.length );
+                counts = tempCounts;
+            }
+            for( int k = common; k < length; k++ ) {
+                char[] entries = levels[k];
+                int count = counts[k];
+                if( entries == null ) {
+                    entries = levels[k] = new char[3 * 16];
+                } else if( count + 3 > entries.length ) {
+                    entries = levels[k] = Arrays.copyOf( entries, 2 * entries.length );
+                }
+                entries[count] = word.charAt( k );
+                entries[count + 1] = 0;
+                entries[count + 2] = 0;
+                counts[k] = count + 3;
+            }
+            levels[length - 1][counts[length - 1] - 2] |= 0x8000;
+            last = word;
+            return true;
+        }
+        
+        /**
+         * Append the node of a level to the tree and set the offset in the last entry of the parent.
+         * @param k the level, larger 0
+         */
+        private void close( int k ) {
+            char[] entries = levels[k];
+            int count = counts[k];
+            counts[k] = 0;
+            int slot = 0;
+            if( nodes != null ) {
+                int mask = nodes.length - 1;
+                for( slot = hash( entries, 0, count ) & mask; nodes[slot] != 0; slot = (slot + 1) & mask ) {
+                    int start = nodes[slot] - 1;
+                    if( isEqual( entries, count, start ) ) {
+                        setOffset( levels[k - 1], counts[k - 1] - 3, start + 1 );
+                        return;
+                    }
+                }
+            }
+            if( size + count + 1 > tree.length ) {
+                tree = Arrays.copyOf( tree, Math.max( size + count + 1, 2 * tree.length ) );
+            }
+            // offsets are saved plus 1 that 0 means ever no children
+            int offset = size + 1;
+            System.arraycopy( entries, 0, tree, size, count );
+            size += count;
+            tree[size++] = DictionaryBase.LAST_CHAR;
+            if( nodes != null ) {
+                nodes[slot] = offset;
+                if( ++nodeCount * 2 > nodes.length ) {
+                    rehash();
+                }
+            }
+            setOffset( levels[k - 1], counts[k - 1] - 3, offset );
+        }
+        
+        /**
+         * Set the offset of the children in an entry of an open node.
+         * @param entries the entries of the node
+         * @param idx the location of the entry
+         * @param offset the offset plus 1
+         */
+        private static void setOffset( char[] entries, int idx, int offset ) {
+            entries[idx + 1] |= (char)(offset >> 16);
+            entries[idx + 2] = (char)offset;
+        }
+        
+        /**
+         * Compare the entries of an open node with a node in the tree.
+         * @param entries the entries of the open node
+         * @param count the count of chars in entries
+         * @param start the start of the node in the tree
+         * @return true if both have the same entries
+         */
+        private boolean isEqual( char[] entries, int count, int start ) {
+            if( start + count >= size || tree[start + count] != DictionaryBase.LAST_CHAR ) {
+                return false;
+            }
+            for( int i = 0; i < count; i++ ) {
+                if( tree[start + i] != entries[i] ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        /**
+         * Double the size of the hash table of the nodes.
+         */
+        private void rehash() {
+            int[] oldNodes = nodes;
+            nodes = new int[2 * oldNodes.length];
+            int mask = nodes.length - 1;
+            for( int offset : oldNodes ) {
+                if( offset != 0 ) {
+                    int start = offset - 1;
+                    int end = start;
+                    while( tree[end] != DictionaryBase.LAST_CHAR ) {
+                        end += 3;
+                    }
+                    int slot = hash( tree, start, end - start ) & mask;
+                    while( nodes[slot] != 0 ) {
+                        slot = (slot + 1) & mask;
+                    }
+                    nodes[slot] = offset;
+                }
+            }
+        }
+        
+        /**
+         * Calculate the hash code of the entries of a node.
+         */
+        private static int hash( char[] chars, int start, int count ) {
+            int hash = count;
+            for( int i = start; i < start + count; i++ ) {
+                hash = 31 * hash + chars[i];
+            }
+            // spread the bits for the mask of the hash table, nodes differ often only in the low bits of an offset
+            hash ^= hash >>> 16;
+            hash *= 0x85ebca6b;
+            hash ^= hash >>> 13;
+            hash *= 0xc2b2ae35;
+            return hash ^ (hash >>> 16);
+        }
+        
+        /**
+         * Close all nodes and create the flattened tree with the root node at the start.
+         * @return the tree
+         */
+        char[] create() {
+            for( int k = last.length() - 1; k > 0; k-- ) {
+                close( k );
+            }
+            int rootSize = (levels.length > 0 ? counts[0] : 0) + 1;
+            char[] result = new char[rootSize + size];
+            if( rootSize > 1 ) {
+                System.arraycopy( levels[0], 0, result, 0, rootSize - 1 );
+            }
+            result[rootSize - 1] = DictionaryBase.LAST_CHAR;
+            System.arraycopy( tree, 0, result, rootSize, size );
+            tree = null;
+            // move all offsets behind the root node
+            for( int idx = 0; idx < result.length; ) {
+                if( result[idx] == DictionaryBase.LAST_CHAR ) {
+                    idx++;
+                    continue;
+                }
+                int offset = ((result[idx + 1] & 0x7fff) << 16) + result[idx + 2];
+                if( offset != 0 ) {
+                    offset += rootSize - 1;
+                    result[idx + 1] = (char)((result[idx + 1] & 0x8000) | (offset >> 16));
+                    result[idx + 2] = (char)offset;
+                }
+                idx += 3;
+            }
+            return result;
+        }
+    }
+    
     /**
      * A node in the search tree. Every Node can include a list of NodeEnties
      */
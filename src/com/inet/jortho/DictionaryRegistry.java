@@ -0,0 +1,136 @@
+/*
+ *  JOrtho
+ *
+ *  Copyright (C) 2005-2011 by i-net software
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License as
+ *  published by the Free Software Foundation; either version 2 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ *  USA.
+ */
+package com.inet.jortho;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Holds the loaded dictionaries of all languages that are currently in use. Every user of a language (the current
+ * language of the SpellChecker and every text component that is bound to a language) holds a reference. A dictionary
+ * is loaded on the first reference and removed after the last reference is released. The same Dictionary instance is
+ * shared by all users of a language, so that added user words are visible everywhere.
+ */
+class DictionaryRegistry {
+
+    private static final HashMap<Locale, Entry> entries = new HashMap<Locale, Entry>();
+
+    /**
+     * There is no instance needed of DictionaryRegistry. All methods are static.
+     */
+    private DictionaryRegistry(){/*nothing*/}
+
+    /**
+     * Add a reference to the dictionary of a language. If the dictionary is not loaded then it will be loaded in the
+     * background and the listener is notified after the loading. The notification occur in the loading thread. The
+     * listener is also notified if the loading failed, then {@link #get(Locale)} returns null. The reference is held
+     * anyway and a later acquire tries the loading again.
+     * @param locale the locale of a registered dictionary
+     * @param listener will be notified if the dictionary is loaded later, can be null
+     * @return the dictionary or null if it is not loaded yet
+     */
+    static synchronized Dictionary acquire( Locale locale, LanguageChangeListener listener ) {
+        Entry entry = entries.get( locale );
+        if( entry == null ) {
+            entry = new Entry( locale );
+            entries.put( locale, entry );
+        }
+        if( entry.dictionary == null && !entry.loading ) {
+            entry.loading = true;
+            Thread thread = new Thread( entry, "JOrtho load dictionary" );
+            thread.setPriority( Thread.NORM_PRIORITY );
+            thread.setDaemon( true );
+            thread.start();
+        }
+        entry.references++;
+        if( entry.dictionary == null && listener != null ) {
+            entry.waiting.add( listener );
+        }
+        return entry.dictionary;
+    }
+
+    /**
+     * Release a reference that was added with acquire.
+     * @param locale the locale
+     */
+    static synchronized void release( Locale locale ) {
+        Entry entry = entries.get( locale );
+        if( entry != null && --entry.references <= 0 ) {
+            entries.remove( locale );
+        }
+    }
+
+    /**
+     * Get the dictionary of a language without adding a reference.
+     * @param locale the locale
+     * @return the dictionary or null if there is no reference or it is not loaded yet
+     */
+    static synchronized Dictionary get( Locale locale ) {
+        Entry entry = entries.get( locale );
+        return entry == null ? null : entry.dictionary;
+    }
+
+    /**
+     * A loaded or currently loading dictionary.
+     */
+    private static class Entry implements Runnable {
+
+        private final Locale locale;
+
+        private final List<LanguageChangeListener> waiting = new ArrayList<LanguageChangeListener>();
+
+        private int references;
+
+        private Dictionary dictionary;
+
+        /** true while the loading thread runs */
+        private boolean loading;
+
+        Entry( Locale locale ) {
+            this.locale = locale;
+        }
+
+        /**
+         * Load the dictionary and notify the waiting listeners, also if the loading failed (for example with an
+         * OutOfMemoryError). Then the dictionary stays null so that the next acquire loads it again.
+         */
+        public void run() {
+            Dictionary loaded = null;
+            try {
+                loaded = SpellChecker.createDictionary( locale );
+            } finally {
+                Object[] listeners;
+                synchronized( DictionaryRegistry.class ) {
+                    dictionary = loaded;
+                    loading = false;
+                    listeners = waiting.toArray();
+                    waiting.clear();
+                }
+                LanguageChangeEvent ev = new LanguageChangeEvent( locale, null );
+                for( Object listener : listeners ) {
+                    ((LanguageChangeListener)listener).languageChanged( ev );
+                }
+            }
+        }
+    }
+}
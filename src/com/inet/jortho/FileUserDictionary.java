@@ -36,7 +36,6 @@ import java.util.Locale;
 public class FileUserDictionary implements UserDictionaryProvider{
 
     private final String fileBase;
-    private File file;
     
     /** 
      * Create a FileUserDictionary with the dictionaries in the root of the current
@@ -65,7 +64,8 @@ public class FileUserDictionary implements UserDictionaryProvider{
     /**
      * {@inheritDoc}
      */
-    public void addWord(String word){
+    public synchronized void addWord(String word, Locale locale){
+        File file = getFile( locale );
         try{
             FileOutputStream output = new FileOutputStream( file, true );
             Writer writer = new OutputStreamWriter( output, "UTF8" );
@@ -84,9 +84,8 @@ public class FileUserDictionary implements UserDictionaryProvider{
      * {@inheritDoc}
      */
     public Iterator<String> getWords(Locale locale){
-        file = new File(fileBase + "UserDictionary_" + locale + ".txt" );
         try{
-            FileInputStream input = new FileInputStream(file);
+            FileInputStream input = new FileInputStream(getFile( locale ));
             return new WordIterator( input, "UTF8" );
         }catch(IOException ex){
             /* ignore FileNotFound */
@@ -97,9 +96,9 @@ public class FileUserDictionary implements UserDictionaryProvider{
     /**
      * {@inheritDoc}
      */
-    public void setUserWords(String wordList){
+    public synchronized void setUserWords(String wordList, Locale locale){
         try{
-            FileOutputStream output = new FileOutputStream( file );
+            FileOutputStream output = new FileOutputStream( getFile( locale ) );
             Writer writer = new OutputStreamWriter( output, "UTF8" );
             writer.write( wordList );
             writer.close();
@@ -107,4 +106,12 @@ public class FileUserDictionary implements UserDictionaryProvider{
         	SpellChecker.getMessageHandler().handleException( ex );
         }
     }
+    
+    /**
+     * Get the file of the user dictionary of a language. The dictionaries of several languages can be loaded at the
+     * same time, so the file is never remembered.
+     */
+    private File getFile(Locale locale){
+        return new File(fileBase + "UserDictionary_" + locale + ".txt" );
+    }
 }
@@ -25,6 +25,7 @@ package com.inet.jortho;
 import java.util.Enumeration;
 import java.util.Locale;
 import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class implements some language specific methods. 
@@ -32,13 +33,21 @@ import java.util.ResourceBundle;
  */
 public class LanguageBundle extends ResourceBundle {
 
+    /** the resolved bundles, the implementations have no state that they can be shared */
+    private static final ConcurrentHashMap<Locale, LanguageBundle> bundles = new ConcurrentHashMap<Locale, LanguageBundle>();
+
     /**
-     * Get a implementations of this class for the given locale
+     * Get a implementations of this class for the given locale. The ResourceBundle lookup is done only once per locale.
      * @param locale the current spell checking language
      * @return an instance, never null
      */
     static LanguageBundle get( Locale locale ){
-        return (LanguageBundle)ResourceBundle.getBundle( LanguageBundle.class.getName(), locale );
+        LanguageBundle bundle = bundles.get( locale );
+        if( bundle == null ) {
+            bundle = (LanguageBundle)ResourceBundle.getBundle( LanguageBundle.class.getName(), locale );
+            bundles.put( locale, bundle );
+        }
+        return bundle;
     }
     
     /**
@@ -0,0 +1,105 @@
+/*
+ *  JOrtho
+ *
+ *  Copyright (C) 2005-2011 by i-net software
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License as
+ *  published by the Free Software Foundation; either version 2 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ *  USA.
+ */
+package com.inet.jortho;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A read only dictionary that walks the flattened tree of a compiled dictionary file directly in a memory mapped
+ * buffer. The tree is not copied on the Java heap, the operating system loads only the pages that are used and can
+ * share them between processes. It is slower than the array based {@link Dictionary} which is the default.
+ * @see Dictionary#saveCompiled(java.io.OutputStream, long, long)
+ */
+public final class MappedDictionary extends DictionaryBase {
+
+    private final CharBuffer buffer;
+
+    private MappedDictionary( CharBuffer buffer, int size ) {
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    /**
+     * Map a compiled dictionary file.
+     * @param file a file that was written with Dictionary.saveCompiled()
+     * @throws IOException if an I/O error occurs or the file does not contain a compiled dictionary.
+     */
+    public MappedDictionary( File file ) throws IOException {
+        MappedDictionary dictionary = map( file, -1, 0 );
+        if( dictionary == null ) {
+            throw new IOException( "No compiled dictionary: " + file );
+        }
+        buffer = dictionary.buffer;
+        size = dictionary.size;
+    }
+
+    /**
+     * Map a compiled dictionary file if it was created from the expected word list.
+     * @param file a file that was written with Dictionary.saveCompiled()
+     * @param sourceLength the expected length of the word list or -1 if it should not be checked
+     * @param sourceModified the expected last modification time of the word list or 0 if it should not be checked
+     * @return the dictionary or null if the file does not contain a matching compiled dictionary
+     * @throws IOException if an I/O error occurs.
+     */
+    static MappedDictionary map( File file, long sourceLength, long sourceModified ) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        try {
+            FileChannel channel = raf.getChannel();
+            long fileSize = channel.size();
+            if( fileSize < Dictionary.COMPILED_HEADER_SIZE ) {
+                return null;
+            }
+            // the mapping is valid also after the channel is closed
+            MappedByteBuffer mapped = channel.map( FileChannel.MapMode.READ_ONLY, 0, fileSize );
+            if( mapped.getInt( 0 ) != Dictionary.COMPILED_MAGIC || mapped.getInt( 4 ) != Dictionary.COMPILED_VERSION ) {
+                return null;
+            }
+            long length = mapped.getLong( 8 );
+            long modified = mapped.getLong( 16 );
+            if( (sourceLength != -1 && length != sourceLength) || (sourceModified != 0 && modified != sourceModified) ) {
+                return null;
+            }
+            int size = mapped.getInt( 24 );
+            if( size < 0 || Dictionary.COMPILED_HEADER_SIZE + 2L * size > fileSize ) {
+                return null;
+            }
+            mapped.position( Dictionary.COMPILED_HEADER_SIZE );
+            ByteBuffer data = mapped.slice();
+            return new MappedDictionary( data.asCharBuffer().asReadOnlyBuffer(), size );
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    char charAt( int index ) {
+        return buffer.get( index );
+    }
+}
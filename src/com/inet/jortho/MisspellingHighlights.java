@@ -0,0 +1,144 @@
+/*
+ *  JOrtho
+ *
+ *  Copyright (C) 2005-2011 by i-net software
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License as
+ *  published by the Free Software Foundation; either version 2 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ *  USA.
+ */
+package com.inet.jortho;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Highlighter;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.Position;
+
+/**
+ * The red zigzag highlights that the AutoSpellChecker has set in a text component, sorted by their offsets. The
+ * offsets are saved as Position objects that the document moves on every insert and remove. Because the misspelled
+ * words never overlap this can not change the order of the highlights, so a range can be found with a binary search
+ * without looking at the other highlights of the text component. All methods must be called in the event dispatch
+ * thread.
+ */
+class MisspellingHighlights {
+
+    private Position[] starts = new Position[16];
+
+    private Position[] ends   = new Position[16];
+
+    /** the tags of the Highlighter */
+    private Object[]   tags   = new Object[16];
+
+    private int        size;
+
+    /**
+     * Replace the highlights that intersect a range of the text. The range is half-open, a highlight that ends at the
+     * start or starts at the end of the range belongs to the neighbour paragraph and is kept. A highlight whose word
+     * was deleted is empty, it is removed if it is at the start or the end of the range.
+     * @param text the text component
+     * @param start the start offset of the range
+     * @param end the end offset of the range, exclusive
+     * @param ranges the start and end offsets of the new highlights, sorted and inside the range
+     * @param painter the painter of the new highlights
+     * @throws BadLocationException if a new highlight is outside the document
+     */
+    void replace( JTextComponent text, int start, int end, int[] ranges, Highlighter.HighlightPainter painter ) throws BadLocationException {
+        Highlighter highlighter = text.getHighlighter();
+        Document doc = text.getDocument();
+        int from = indexOfEnd( start );
+        int to = from;
+        while( to < size && (starts[to].getOffset() < end || (starts[to].getOffset() == end && ends[to].getOffset() == end)) ) {
+            highlighter.removeHighlight( tags[to] );
+            to++;
+        }
+        int count = ranges.length / 2;
+        move( to, from + count );
+        int k = 0;
+        try {
+            for( ; k < count; k++ ) {
+                int idx = from + k;
+                starts[idx] = doc.createPosition( ranges[2 * k] );
+                ends[idx] = doc.createPosition( ranges[2 * k + 1] );
+                tags[idx] = highlighter.addHighlight( ranges[2 * k], ranges[2 * k + 1], painter );
+            }
+        } finally {
+            if( k < count ) {
+                // close the gap of the highlights that could not be added
+                move( from + count, from + k );
+            }
+        }
+    }
+
+    /**
+     * Remove all highlights from the text component.
+     * @param text the text component
+     */
+    void removeAll( JTextComponent text ) {
+        Highlighter highlighter = text.getHighlighter();
+        for( int i = 0; i < size; i++ ) {
+            highlighter.removeHighlight( tags[i] );
+        }
+        move( size, 0 );
+    }
+
+    /**
+     * Get the first highlight that ends after the offset or that is empty at the offset. The end offsets are sorted
+     * like the start offsets.
+     */
+    private int indexOfEnd( int offset ) {
+        int low = 0;
+        int high = size;
+        while( low < high ) {
+            int mid = (low + high) >>> 1;
+            int midEnd = ends[mid].getOffset();
+            if( midEnd < offset || (midEnd == offset && starts[mid].getOffset() < offset) ) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Move all highlights from an index to another index. The highlights between are removed or there is a gap for
+     * new highlights.
+     */
+    private void move( int src, int dest ) {
+        int newSize = size + dest - src;
+        if( newSize > starts.length ) {
+            int capacity = Math.max( newSize, 2 * starts.length );
+            starts = copyOf( starts, new Position[capacity] );
+            ends = copyOf( ends, new Position[capacity] );
+            tags = copyOf( tags, new Object[capacity] );
+        }
+        System.arraycopy( starts, src, starts, dest, size - src );
+        System.arraycopy( ends, src, ends, dest, size - src );
+        System.arraycopy( tags, src, tags, dest, size - src );
+        for( int i = newSize; i < size; i++ ) {
+            // release the references that the document can free the positions
+            starts[i] = null;
+            ends[i] = null;
+            tags[i] = null;
+        }
+        size = newSize;
+    }
+
+    private <T> T[] copyOf( T[] array, T[] newArray ) {
+        System.arraycopy( array, 0, newArray, 0, size );
+        return newArray;
+    }
+}
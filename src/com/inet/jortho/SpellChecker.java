@@ -29,6 +29,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ItemEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseListener;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
@@ -82,11 +83,19 @@ public class SpellChecker {
     private static final SpellCheckerOptions globalOptions = new SpellCheckerOptions();
     private static MessageHandler messageHandler = new DefaultMessageHandler( null );
     private static CustomUIProvider customUIProvider;
+    private static long suggestionIndexBudget;
+    private static boolean suggestionIndexLazy = true;
+    private static boolean dictionaryMemoryMapped;
     
     /**
      * Duplicate of Action.SELECTED_KEY since 1.6
      */
     static final String SELECTED_KEY = "SwingSelectedKey";
+
+    /**
+     * Client property of a JTextComponent with the Locale to which it is bound.
+     */
+    private static final String LOCALE_KEY = "JOrtho.locale";
     
     /**
      * There is no instance needed of SpellChecker. All methods are static.
@@ -136,6 +145,59 @@ public class SpellChecker {
         return SpellChecker.customDictionaryProvider;
     }
     
+    /**
+     * Set a directory in which the compiled dictionaries are saved. Loading a compiled dictionary is much faster than
+     * creating it from the word list again. A compiled dictionary is created again if the word list has changed. 
+     * This method should be called before {@link #registerDictionaries(URL, String, String)}.
+     * 
+     * @param directory the directory or null if the compiled dictionaries should not be saved
+     * @see #setDictionaryCacheSize(int)
+     */
+    public static void setDictionaryCacheDirectory( File directory ) {
+        DictionaryCache.setDirectory( directory );
+    }
+
+    /**
+     * Set the number of compiled dictionaries that are hold in memory. Switching back to one of the recently used
+     * languages does not need to load the dictionary again. The default is 3.
+     * 
+     * @param size the number of languages, 0 disables the memory cache
+     * @see #setDictionaryCacheDirectory(File)
+     */
+    public static void setDictionaryCacheSize( int size ) {
+        DictionaryCache.setMaxSize( size );
+    }
+
+    /**
+     * Read the dictionaries from memory mapped files in the cache directory instead of loading them on the Java heap.
+     * The operating system loads only the used parts and can share them between processes, but the lookups are
+     * slower. Without a cache directory the dictionaries are loaded on the heap. The setting is used for dictionaries
+     * that are loaded after this call. The default is false.
+     * 
+     * @param mapped true, to map the compiled dictionaries
+     * @see #setDictionaryCacheDirectory(File)
+     */
+    public static void setDictionaryMemoryMapped( boolean mapped ) {
+        dictionaryMemoryMapped = mapped;
+    }
+
+    /**
+     * Enable an index for a faster search of suggestions. The index finds the words with up to two wrong, missing,
+     * additional or transposed letters with a few lookups instead of a search in the complete dictionary. It needs a
+     * multiple of the memory of a dictionary. A language whose index would need more memory as the budget uses the
+     * normal search. The setting is used for dictionaries that are loaded after this call. The default is disabled.
+     * 
+     * @param memoryBudget
+     *            the max count of bytes for the index of one language, 0 disables the index
+     * @param lazy
+     *            true, the index is created in the background on the first search of suggestions; false, it is
+     *            created if the dictionary is loaded
+     */
+    public static void setSuggestionIndex( long memoryBudget, boolean lazy ) {
+        suggestionIndexBudget = memoryBudget;
+        suggestionIndexLazy = lazy;
+    }
+
     /**
      * Set the message handler used for handling errors and information messages. 
      * 
@@ -475,7 +537,7 @@ public class SpellChecker {
             // only editable text component have spell checking
             return;
         }
-        Dictionary dictionary = currentDictionary;
+        Dictionary dictionary = getDictionary( text );
         if( dictionary != null ) {
             Window parent = SwingUtilities.getWindowAncestor( text );
             SpellCheckerDialog dialog;
@@ -484,7 +546,7 @@ public class SpellChecker {
             } else {
                 dialog = new SpellCheckerDialog( (Dialog)parent, true, options );
             }
-            dialog.show( text, dictionary, currentLocale );
+            dialog.show( text, dictionary, getLocale( text ) );
         }
     }
     
@@ -781,6 +843,9 @@ public class SpellChecker {
                 currentDictionary = null;
                 Locale oldLocale = currentLocale;
                 currentLocale = null;
+                if( oldLocale != null ) {
+                    DictionaryRegistry.release( oldLocale );
+                }
                 fireLanguageChanged( oldLocale );
             } finally {
                 setEnabled( true );
@@ -791,7 +856,7 @@ public class SpellChecker {
     /**
      * Action for change the current dictionary language.
      */
-    private static class LanguageAction extends AbtsractLanguageAction implements Comparable<LanguageAction>{
+    private static class LanguageAction extends AbtsractLanguageAction implements Comparable<LanguageAction>, LanguageChangeListener{
         
         private final URL baseURL;
         private final Locale locale;
@@ -813,46 +878,103 @@ public class SpellChecker {
             setEnabled( false );
             setSelected( true );
             
-            Thread thread = new Thread( new Runnable() {
-                public void run() {
-                    try {
-                        DictionaryFactory factory = new DictionaryFactory();
-                        try {
-                            factory.loadWordList( new URL( baseURL, "dictionary_" + locale + extension ) );
-                        } catch( Exception ex ) {
-                        	SpellChecker.getMessageHandler().handleError( ex.toString(), "Error", ex );
-                        }
-                         try {
-                            CustomDictionaryProvider provider = userDictionaryProvider;
-                            if( provider != null ) {
-                                Iterator<String> userWords = provider.getWords( locale );
-                                if( userWords != null ) {
-                                    factory.loadWords( userWords );
-                                }
-                            }
-                            provider = customDictionaryProvider;
-                            if( provider != null ) {
-                                Iterator<String> userWords = provider.getWords( locale );
-                                if( userWords != null ) {
-                                    factory.loadWords( userWords );
-                                }
-                            }
-                        } catch( Exception ex ) {
-                        	SpellChecker.getMessageHandler().handleError( ex.toString(), "Error", ex );
-                        }
-                        Locale oldLocale = locale;
-                        currentDictionary = factory.create();
-                        factory = null; // make memory faster free
-                        currentLocale = locale;
-                        fireLanguageChanged( oldLocale );
-                    } finally {
-                        setEnabled( true );
+            Dictionary dictionary = DictionaryRegistry.acquire( locale, this );
+            if( dictionary != null ) {
+                activate( dictionary );
+            }
+        }
+        
+        /**
+         * Is called from the DictionaryRegistry if the dictionary of this language was loaded in the background.
+         */
+        public void languageChanged( LanguageChangeEvent ev ) {
+            Dictionary dictionary = DictionaryRegistry.get( locale );
+            if( dictionary != null ) {
+                activate( dictionary );
+                return;
+            }
+            // the loading failed, keep the current language and allow to select this language again
+            DictionaryRegistry.release( locale );
+            LanguageAction current = currentLocale == null ? null : findLanguage( currentLocale );
+            if( current != null ) {
+                current.setSelected( true );
+            } else {
+                DisableLanguageAction.instance.setSelected( true );
+            }
+            setEnabled( true );
+        }
+        
+        /**
+         * Set the dictionary of this language as the current dictionary.
+         */
+        private void activate( Dictionary dictionary ) {
+            try {
+                Locale oldLocale = currentLocale;
+                currentDictionary = dictionary;
+                currentLocale = locale;
+                if( oldLocale != null ) {
+                    DictionaryRegistry.release( oldLocale );
+                }
+                fireLanguageChanged( oldLocale );
+            } finally {
+                setEnabled( true );
+            }
+        }
+        
+        /**
+         * Load the dictionary of this language with the words of the user and custom dictionary.
+         */
+        Dictionary load() {
+            Dictionary dictionary;
+            try {
+                URL wordList = new URL( baseURL, "dictionary_" + locale + extension );
+                MappedDictionary mapped = dictionaryMemoryMapped ? DictionaryCache.getMappedDictionary( wordList ) : null;
+                if( mapped != null ) {
+                    dictionary = new Dictionary( mapped );
+                } else {
+                    dictionary = new Dictionary( DictionaryCache.getTree( wordList ) );
+                }
+            } catch( Exception ex ) {
+                dictionary = new Dictionary();
+                SpellChecker.getMessageHandler().handleError( ex.toString(), "Error", ex );
+            }
+            try {
+                CustomDictionaryProvider provider = userDictionaryProvider;
+                if( provider != null ) {
+                    Iterator<String> userWords = provider.getWords( locale );
+                    if( userWords != null ) {
+                        addWords( dictionary, userWords );
                     }
                 }
-            });
-            thread.setPriority( Thread.NORM_PRIORITY );
-            thread.setDaemon( true );
-            thread.start();
+                provider = customDictionaryProvider;
+                if( provider != null ) {
+                    Iterator<String> userWords = provider.getWords( locale );
+                    if( userWords != null ) {
+                        addWords( dictionary, userWords );
+                    }
+                }
+            } catch( Exception ex ) {
+                SpellChecker.getMessageHandler().handleError( ex.toString(), "Error", ex );
+            }
+            dictionary.setDeletionIndex( suggestionIndexBudget, suggestionIndexLazy );
+            return dictionary;
+        }
+        
+        /**
+         * Add the words of a user or custom dictionary to the compiled dictionary. Like in the DictionaryFactory
+         * words with only one character are ignored.
+         */
+        private void addWords( Dictionary dictionary, Iterator<String> words ) {
+            ArrayList<String> list = new ArrayList<String>();
+            while( words.hasNext() ) {
+                String word = words.next();
+                if( word != null && word.length() > 1 ) {
+                    list.add( word );
+                }
+            }
+            if( list.size() > 0 ) {
+                dictionary.addAll( list );
+            }
         }
         
         @Override
@@ -876,6 +998,92 @@ public class SpellChecker {
         }
     }
 
+    /**
+     * Find the registered language for a locale. If there is no dictionary for the locale itself then a dictionary of
+     * the same language without country and variant is used.
+     * @param locale the requested locale
+     * @return the action of the language or null if there is no matching dictionary
+     */
+    private static LanguageAction findLanguage( Locale locale ) {
+        LanguageAction found = null;
+        for( LanguageAction language : languages ) {
+            if( language.locale.equals( locale ) ) {
+                return language;
+            }
+            if( found == null && language.locale.getLanguage().equals( locale.getLanguage() ) && language.locale.getCountry().length() == 0 ) {
+                found = language;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Load the dictionary of a registered locale. Is used from the DictionaryRegistry.
+     * @param locale the locale of a registered dictionary
+     * @return the new dictionary or null if the locale is not registered
+     */
+    static Dictionary createDictionary( Locale locale ) {
+        LanguageAction language = findLanguage( locale );
+        return language == null ? null : language.load();
+    }
+
+    /**
+     * Bind a text component to the dictionary of a language. Without a binding a text component use the current
+     * language of the SpellChecker. Different text components can be checked with different languages at the same
+     * time. If there is no registered dictionary for the locale then the text component is not checked.
+     * @param text the JTextComponent
+     * @param locale the language of the text or null to remove the binding
+     * @see #getLocale(JTextComponent)
+     */
+    public static void setLocale( final JTextComponent text, Locale locale ) {
+        if( locale != null ) {
+            LanguageAction language = findLanguage( locale );
+            locale = language == null ? new Locale( "" ) : language.locale;
+        }
+        Locale oldLocale = (Locale)text.getClientProperty( LOCALE_KEY );
+        if( locale == null ? oldLocale == null : locale.equals( oldLocale ) ) {
+            return;
+        }
+        text.putClientProperty( LOCALE_KEY, locale );
+        if( locale != null && locale.getLanguage().length() > 0 ) {
+            DictionaryRegistry.acquire( locale, new LanguageChangeListener() {
+                public void languageChanged( LanguageChangeEvent ev ) {
+                    SwingUtilities.invokeLater( new Runnable() {
+                        public void run() {
+                            AutoSpellChecker.refresh( text );
+                        }
+                    } );
+                }
+            } );
+        }
+        if( oldLocale != null && oldLocale.getLanguage().length() > 0 ) {
+            DictionaryRegistry.release( oldLocale );
+        }
+        AutoSpellChecker.refresh( text );
+    }
+
+    /**
+     * Get the language that is used to check a text component.
+     * @param text the JTextComponent
+     * @return the locale of the dictionary to which the text component is bound or the current locale
+     * @see #setLocale(JTextComponent, Locale)
+     */
+    public static Locale getLocale( JTextComponent text ) {
+        Locale locale = (Locale)text.getClientProperty( LOCALE_KEY );
+        return locale == null ? currentLocale : locale;
+    }
+
+    /**
+     * Get the <code>Dictionary</code> that is used to check a text component.
+     * @param text the JTextComponent
+     * @return the dictionary or null if it is not loaded
+     * @see #setLocale(JTextComponent, Locale)
+     */
+    static Dictionary getDictionary( JTextComponent text ) {
+        Locale locale = (Locale)text.getClientProperty( LOCALE_KEY );
+        return locale == null ? currentDictionary : DictionaryRegistry.get( locale );
+    }
+
     /**
      * Get the current <code>Dictionary</code>. The current dictionary will be set if the user one select or on calling <code>registerDictionaries</code>.
      * @return the current <code>Dictionary</code> or null if not set.
@@ -44,6 +44,7 @@ class SpellCheckerDialog extends JDialog implements ActionListener {
 
     private JTextComponent jText;
     private Dictionary dictionary;
+    private Locale locale;
     private Tokenizer tok;
     private boolean isDictionaryModify;
     private final SpellCheckerOptions options;
@@ -185,6 +186,7 @@ class SpellCheckerDialog extends JDialog implements ActionListener {
     public void show( JTextComponent jTextComponent, Dictionary dic, Locale loc ) {
         this.jText = jTextComponent;
         this.dictionary = dic;
+        this.locale = loc;
         change.requestFocus();
         setTitle( Utils.getResource("spelling") + ": " + loc.getDisplayLanguage() );
 
@@ -244,7 +246,7 @@ class SpellCheckerDialog extends JDialog implements ActionListener {
         word.setText( wordStr );
         notFound.setText( wordStr );
 
-        List<Suggestion> list = dictionary.searchSuggestions( wordStr );
+        List<Suggestion> list = dictionary.searchSuggestions( wordStr, options.getSuggestionsLimitDialog() );
         
         boolean needCapitalization = tok.isFirstWordInSentence() && Utils.isFirstCapitalized( wordStr );
 
@@ -283,14 +285,13 @@ class SpellCheckerDialog extends JDialog implements ActionListener {
             } else if( source == addToDic ) {
                 UserDictionaryProvider provider = SpellChecker.getUserDictionaryProvider();
                 if( provider != null ) {
-                    provider.addWord( oldWord );
+                    provider.addWord( oldWord, locale );
                 }
                 dictionary.add( oldWord );
-                dictionary.trimToSize();
                 isDictionaryModify = true;
                 searchNext();
             } else if( source == editDic ) {
-                new DictionaryEditDialog( this ).setVisible( true );
+                new DictionaryEditDialog( this, locale ).setVisible( true );
             } else if( source == change || source == suggestionsList ) {
                 replaceWord( oldWord, newWord );
                 searchNext();
@@ -24,17 +24,24 @@ package com.inet.jortho;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.PriorityQueue;
 
 /**
- * A hash list of Suggestions. The list is cut with a max dissimilarity. If a suggestion already exist then the
- * suggestion with the lower dissimilarity will be hold.
+ * A bounded list of the best Suggestions. The list is cut with a max dissimilarity and a max count. If the list is
+ * full then only suggestions that are better as the currently worst can be added and the worst is removed. If a
+ * suggestion already exist then the suggestion with the lower dissimilarity will be hold.
  * 
  * @author Volker Berlin
  */
 class Suggestions {
 
     private final int maxDiff;
+    private final int limit;
+    /** the worst suggestion is the head of the queue */
+    private final PriorityQueue<Suggestion> queue;
+    /** the suggestions of the queue by the word */
     private final HashMap<Suggestion,Suggestion> map = new HashMap<Suggestion,Suggestion>();
 
     /**
@@ -42,7 +49,18 @@ class Suggestions {
      * @param maxDiff the max dissimilarity
      */
     Suggestions(int maxDiff){
+        this( maxDiff, Integer.MAX_VALUE );
+    }
+    
+    /**
+     * Create a suggestions list with a max count of suggestions.
+     * @param maxDiff the max dissimilarity
+     * @param limit the max count of suggestions
+     */
+    Suggestions(int maxDiff, int limit){
         this.maxDiff = maxDiff;
+        this.limit = Math.max( 1, limit );
+        queue = new PriorityQueue<Suggestion>( Math.min( this.limit, 32 ) + 1, Collections.reverseOrder() );
     }
     
     /**
@@ -50,30 +68,43 @@ class Suggestions {
      * @param suggestion the suggestion 
      */
     void add(Suggestion suggestion){
-        if(suggestion.getDissimilarity() > maxDiff){
+        if(suggestion.getDissimilarity() > getMaxDissimilarity()){
             return;
         }
         Suggestion oldSuggestion = map.get( suggestion );
-        if(oldSuggestion != null && oldSuggestion.getDissimilarity() <= suggestion.getDissimilarity()){
-            return;
+        if(oldSuggestion != null){
+            if(oldSuggestion.getDissimilarity() <= suggestion.getDissimilarity()){
+                return;
+            }
+            queue.remove( oldSuggestion );
         }
         map.put( suggestion, suggestion );
+        queue.add( suggestion );
+        if( queue.size() > limit ) {
+            map.remove( queue.poll() );
+        }
     }
     
     
+    /**
+     * Get the suggestions sorted by the dissimilarity.
+     * @return a new list
+     */
     List<Suggestion> getlist(){
-        ArrayList<Suggestion> list = new ArrayList<Suggestion>();
-        for(Suggestion sugg : map.values()){
-            list.add( sugg );
-        }
+        ArrayList<Suggestion> list = new ArrayList<Suggestion>( queue );
+        Collections.sort( list );
         return list;
     }
 
     /**
-     * Get the max dissimilarity. Suggestion with a larger value can not be added.
-     * @return
+     * Get the max dissimilarity that a new suggestion can have. If the list is full then this is smaller as the
+     * currently worst suggestion.
+     * @return the current bound
      */
     int getMaxDissimilarity() {
-        return maxDiff;
+        if( queue.size() < limit ) {
+            return maxDiff;
+        }
+        return Math.min( maxDiff, queue.peek().getDissimilarity() - 1 );
     }
 }
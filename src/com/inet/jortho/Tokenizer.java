@@ -23,6 +23,7 @@
 package com.inet.jortho;
 
 import java.text.BreakIterator;
+import java.util.HashMap;
 import java.util.Locale;
 
 import javax.swing.text.AbstractDocument;
@@ -37,9 +38,21 @@ import javax.swing.text.Utilities;
  */
 class Tokenizer {
     
+    /**
+     * The break iterators of released Tokenizers, one sentence and one word iterator per locale and thread. Creating
+     * them is expensive compared to the check of a short paragraph.
+     */
+    private static final ThreadLocal<HashMap<Locale, BreakIterator[]>> freeIterators = new ThreadLocal<HashMap<Locale, BreakIterator[]>>() {
+        @Override
+        protected HashMap<Locale, BreakIterator[]> initialValue() {
+            return new HashMap<Locale, BreakIterator[]>();
+        }
+    };
+    
     private final Document doc;
     private final SpellCheckerOptions options;
     private final LanguageBundle bundle;
+    private final Locale locale;
     /** start offset of current paragraph */
     private int paragraphOffset;
     /** end offset of current paragraph */
@@ -81,9 +94,16 @@ class Tokenizer {
         this.dictionary = dictionary;
         doc = jText.getDocument();
         bundle = LanguageBundle.get( locale );
+        this.locale = locale;
         this.options = options == null ? SpellChecker.getOptions() : options;
-        sentences = BreakIterator.getSentenceInstance( locale );
-        words = BreakIterator.getWordInstance( locale );
+        BreakIterator[] iterators = freeIterators.get().remove( locale );
+        if( iterators != null ) {
+            sentences = iterators[0];
+            words = iterators[1];
+        } else {
+            sentences = BreakIterator.getSentenceInstance( locale );
+            words = BreakIterator.getWordInstance( locale );
+        }
 
         paragraphOffset = startOffset;
         this.endOffset = endOffset;
@@ -261,6 +281,19 @@ class Tokenizer {
         return paragraphOffset + wordOffset;
     }
 
+    /**
+     * Give the break iterators back that the next Tokenizer of the same locale in the current thread can reuse them.
+     * After this call the Tokenizer can not be used anymore except for getWordOffset() and isFirstWordInSentence().
+     */
+    void release() {
+        if( sentences == null ) {
+            return;
+        }
+        freeIterators.get().put( locale, new BreakIterator[] { sentences, words } );
+        sentences = null;
+        words = null;
+    }
+
     /**
      * Update the text after a word was replaced. The changes in the text should be only after the current word offset.
      */
@@ -22,27 +22,32 @@
  */
 package com.inet.jortho;
 
+import java.util.Locale;
+
 /**
- * Interface to be implemented by a user dictionary. Adding a new word via {@link #addWord(String)} must
- * trigger a storing of the dictionary.
+ * Interface to be implemented by a user dictionary. Adding a new word via {@link #addWord(String, Locale)} must
+ * trigger a storing of the dictionary. Every language has its own user dictionary, the words are added to the
+ * language of the text in which they occur, which is not necessarily the current language of the SpellChecker.
  * 
  * @author Volker Berlin
  */
 public interface UserDictionaryProvider extends CustomDictionaryProvider{
 
     /**
-     * Adds a new word to the current user dictionary. The implementor must save this word in its own backend.
+     * Adds a new word to the user dictionary of a language. The implementor must save this word in its own backend.
      * 
      * @param word the new word.
+     * @param locale the language of the user dictionary
      */
-    void addWord( String word );
+    void addWord( String word, Locale locale );
 
     /**
      * Set a completely new word list
      * 
      * @param wordList
      *            the new word list. Can be empty but not null.
+     * @param locale the language of the user dictionary
      */
-    void setUserWords( String wordList );
+    void setUserWords( String wordList, Locale locale );
 
 }
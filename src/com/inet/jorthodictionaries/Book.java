@@ -22,30 +22,37 @@
  */
 package com.inet.jorthodictionaries;
 
-import java.util.HashSet;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * This is the container for the found words.
+ * This is the container for the found words. It can be filled from multiple threads at the same time.
  * 
  * @author Volker Berlin
  */
 class Book {
 
-    private int charCount;
-    private HashSet list = new HashSet();
-    private int titleCount;
-    private int titleCountLanguage;
+    private final WordStore list = new WordStore();
+    private final AtomicInteger titleCount = new AtomicInteger();
+    private final AtomicInteger titleCountLanguage = new AtomicInteger();
+    private final List<File> checkpoints = new ArrayList<File>();
 
     /**
      * Add a word to the list
      * @param word can not be null
      */
     final protected void addWord(String word){
-        if(list.add( word )){            
-            if(list.size() % 1000 == 0){
-                System.out.println("Word count:"+list.size());
+        if(list.add( word )){
+            int count = list.size();
+            if(count % 1000 == 0){
+                System.out.println("Word count:"+count);
             }
-            charCount += word.length();
         }
     }
     
@@ -53,14 +60,14 @@ class Book {
      * Increment the Count of Wiktionary article
      */
     void incTitleCount(){
-        titleCount++;
+        titleCount.incrementAndGet();
     }
     
     /**
      * Increment the Count of Wiktionary article in the target language 
      */
     void incLanguageTitleCount(){
-        titleCountLanguage++;
+        titleCountLanguage.incrementAndGet();
     }
     
     /**
@@ -68,7 +75,7 @@ class Book {
      * @return the count
      */
     int getTitleCount(){
-        return titleCount;
+        return titleCount.get();
     }
     
     /**
@@ -76,7 +83,7 @@ class Book {
      * @return the count
      */
     int getLanguageTitleCount(){
-        return titleCountLanguage;
+        return titleCountLanguage.get();
     }
     
     /**
@@ -92,14 +99,64 @@ class Book {
      * @return the count
      */
     int getCharCount(){
-        return charCount;
+        return list.getCharCount();
     }
     
     /**
-     * The list of the words
-     * @return the list
+     * The words in the sort order of String.compareTo(). No words should be added while iterating.
+     * @return the sorted words
      */
-    String[] getWords(){
-        return (String[])list.toArray(new String[list.size()]);
+    Iterator<String> getSortedWords(){
+        return list.sortedIterator();
+    }
+    
+    /**
+     * Write the words and the counters to a checkpoint. No words should be added at the same time.
+     * @param out the checkpoint stream
+     * @throws IOException if an I/O error occurs
+     */
+    void write(DataOutputStream out) throws IOException{
+        out.writeInt( titleCount.get() );
+        out.writeInt( titleCountLanguage.get() );
+        out.writeInt( list.size() );
+        for( Iterator<String> words = list.iterator(); words.hasNext(); ) {
+            out.writeUTF( words.next() );
+        }
+    }
+    
+    /**
+     * Replace the words and the counters with the data of a checkpoint.
+     * @param in the checkpoint stream
+     * @throws IOException if an I/O error occurs
+     * @see #write(DataOutputStream)
+     */
+    void read(DataInputStream in) throws IOException{
+        list.clear();
+        titleCount.set( in.readInt() );
+        titleCountLanguage.set( in.readInt() );
+        int count = in.readInt();
+        for( int i = 0; i < count; i++ ) {
+            list.add( in.readUTF() );
+        }
+    }
+    
+    /**
+     * Register a checkpoint file of a pass that fill this book.
+     * @param file the file
+     */
+    synchronized void addCheckpoint(File file){
+        if( !checkpoints.contains( file ) ) {
+            checkpoints.add( file );
+        }
+    }
+    
+    /**
+     * Delete the checkpoint files after the words are saved.
+     */
+    synchronized void deleteCheckpoints(){
+        for( File file : checkpoints ) {
+            file.delete();
+        }
+        checkpoints.clear();
     }
 }
@@ -29,11 +29,14 @@ import java.text.SimpleDateFormat;
 import java.util.*;
 import java.util.zip.*;
 
+import com.inet.jortho.Utils;
+
 
 /**
  * How to use
  * <li>Download the latest Wiktionary file "pages_articles.xml".
- * It is typical compressed. The position changed. I found it last at:
+ * It is typical compressed. It can be read directly as *.xml.bz2 or *.xml.gz, for bz2 the program bzip2 must be in
+ * the path. The position changed. I found it last at:
  * <ul>
  * <li>http://dumps.wikimedia.org/arwiktionary/latest/arwiktionary-latest-pages-articles.xml.bz2
  * <li>http://dumps.wikimedia.org/dewiktionary/latest/dewiktionary-latest-pages-articles.xml.bz2
@@ -48,12 +51,31 @@ import java.util.zip.*;
  * </li>
  * 
  * <li>start the Generator with follow command line:<br>
- * java -Xmx256m com.inet.spell.wiktionary.BookGenerator de <folder with file></li>
+ * java -Xmx256m com.inet.spell.wiktionary.BookGenerator de <folder with file> [<thread count>]</li>
+ * The pages are checked in a pool of threads. The default thread count is the count of processors. With a thread
+ * count of 1 the pages are checked in the thread of the XML parser.
+ * <li>Every 100000 pages the found words are saved in a checkpoint file in the current directory. If the generator is
+ * interrupted then it continues on the next start after the last checkpoint. The checkpoint files are deleted after
+ * the dictionary was saved.</li>
  * @author Volker
  */
 public abstract class BookGenerator {
 
     private final Book book;
+    
+    /** the count of threads that check the pages */
+    private static int threadCount = Runtime.getRuntime().availableProcessors();
+    
+    /** the count of pages between two checkpoints */
+    static final int CHECKPOINT_INTERVAL = 100000;
+    
+    private static final int CHECKPOINT_VERSION = 2;
+    
+    /** the checkpoint of the current pass, null if the pass can not be resumed */
+    private File checkpointFile;
+    
+    /** the dump file of the current pass, the checkpoint is only valid for the same length and modification time */
+    private File dumpFile;
 
     
     public static void main(String[] args) throws Exception {
@@ -62,6 +84,9 @@ public abstract class BookGenerator {
         if(dirName.length() > 0 && !dirName.endsWith( "/" )){
             dirName += '/';
         }
+        if(args.length>2){
+            threadCount = Math.max( 1, Integer.parseInt( args[2] ) );
+        }
         String[] languages = languagesList.split(",");
         for(int i = 0; i < languages.length; i++){
             String language = languages[i];
@@ -89,11 +114,176 @@ public abstract class BookGenerator {
      * @param stream Daten im XML format
      */
     void start(File file) throws Exception{
-        InputStream stream = new FileInputStream(file);
-        System.out.println("=== Start Parsing XML stream ===");
-        new Parser(this, stream);
-
-        stream.close();
+        file = findDump( file );
+        dumpFile = file;
+        int skipPages = 0;
+        checkpointFile = null;
+        if( isResumable() ) {
+            checkpointFile = new File( "checkpoint_" + getClass().getSimpleName() + "_" + file.getName() + ".dat" );
+            book.addCheckpoint( checkpointFile );
+            if( checkpointFile.exists() ) {
+                skipPages = readCheckpoint();
+                if( skipPages < 0 ) {
+                    System.out.println("=== Skip completed " + file + " ===");
+                    return;
+                }
+                if( skipPages > 0 ) {
+                    System.out.println("=== Resume " + file + " after page " + skipPages + " ===");
+                }
+            }
+        }
+        InputStream stream = openDump(file);
+        try{
+            System.out.println("=== Start Parsing XML stream ===");
+            new Parser(this, stream, threadCount, skipPages);
+        }finally{
+            stream.close();
+        }
+        writeCheckpoint( -1 );
+    }
+    
+    /**
+     * Find the dump file. If the uncompressed file does not exist then a compressed file with the same name is used.
+     * @param file the uncompressed file
+     * @return the existing file
+     */
+    private static File findDump(File file){
+        if( !file.exists() ) {
+            for( String extension : new String[] { ".bz2", ".gz" } ) {
+                File compressed = new File( file.getPath() + extension );
+                if( compressed.exists() ) {
+                    return compressed;
+                }
+            }
+        }
+        return file;
+    }
+    
+    /**
+     * Open a dump file and decompress it while reading.
+     * @param file the dump file
+     * @return the stream with the XML data
+     * @throws IOException if an I/O error occurs
+     */
+    private static InputStream openDump(File file) throws IOException{
+        String name = file.getName();
+        if( name.endsWith( ".gz" ) ) {
+            return new GZIPInputStream( new FileInputStream( file ), 65536 );
+        }
+        if( name.endsWith( ".bz2" ) ) {
+            // there is no bzip2 decoder in the JRE
+            Process process = new ProcessBuilder( "bzip2", "-dc", file.getPath() ).start();
+            process.getOutputStream().close();
+            return new ProcessInputStream( process );
+        }
+        return new FileInputStream( file );
+    }
+    
+    /**
+     * The output of an external decompression program.
+     */
+    private static class ProcessInputStream extends FilterInputStream {
+        private final Process process;
+        private boolean eof;
+        
+        ProcessInputStream(Process process){
+            super( new BufferedInputStream( process.getInputStream(), 65536 ) );
+            this.process = process;
+        }
+        
+        @Override
+        public int read() throws IOException{
+            int b = super.read();
+            eof |= b < 0;
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException{
+            int count = super.read( b, off, len );
+            eof |= count < 0;
+            return count;
+        }
+        
+        /**
+         * Close the stream and check that the complete file could be decompressed.
+         */
+        @Override
+        public void close() throws IOException{
+            super.close();
+            if( !eof ) {
+                process.destroy();
+                return;
+            }
+            try {
+                int exitCode = process.waitFor();
+                if( exitCode != 0 ) {
+                    throw new IOException( "bzip2 failed with exit code " + exitCode );
+                }
+            } catch( InterruptedException ex ) {
+                throw new IOException( ex.toString() );
+            }
+        }
+    }
+    
+    /**
+     * If the pass of this generator can be continued from a checkpoint. This is only possible if all results are
+     * saved in the book.
+     * @return true, if checkpoints should be written
+     */
+    boolean isResumable(){
+        return true;
+    }
+    
+    /**
+     * Save the book in the checkpoint file of the current pass. Is called from the Parser if no page is checked.
+     * @param pageCount the count of finished pages or -1 if the pass is complete
+     * @throws IOException if an I/O error occurs
+     */
+    void writeCheckpoint(int pageCount) throws IOException{
+        if( checkpointFile == null ) {
+            return;
+        }
+        // write to a temporary file that a crash on writing does not destroy the last checkpoint
+        File temp = new File( checkpointFile.getPath() + ".tmp" );
+        DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new DeflaterOutputStream( new FileOutputStream( temp ) ) ) );
+        try{
+            out.writeInt( CHECKPOINT_VERSION );
+            out.writeLong( dumpFile.length() );
+            out.writeLong( dumpFile.lastModified() );
+            out.writeInt( pageCount );
+            book.write( out );
+        }finally{
+            out.close();
+        }
+        checkpointFile.delete();
+        if( !temp.renameTo( checkpointFile ) ) {
+            throw new IOException( "Can not rename " + temp + " to " + checkpointFile );
+        }
+    }
+    
+    /**
+     * Replace the book with the data of the checkpoint file of the current pass. A checkpoint of another format or of
+     * another dump file, for example after the download of a newer dump with the same name, is deleted.
+     * @return the count of finished pages, 0 if the checkpoint was deleted or -1 if the pass is complete
+     * @throws IOException if an I/O error occurs
+     */
+    private int readCheckpoint() throws IOException{
+        DataInputStream in = new DataInputStream( new BufferedInputStream( new InflaterInputStream( new FileInputStream( checkpointFile ) ) ) );
+        try{
+            if( in.readInt() == CHECKPOINT_VERSION && in.readLong() == dumpFile.length() && in.readLong() == dumpFile.lastModified() ) {
+                int pageCount = in.readInt();
+                book.read( in );
+                return pageCount;
+            }
+        }finally{
+            in.close();
+        }
+        System.out.println("=== Ignore checkpoint " + checkpointFile + " of another dump ===");
+        if( !checkpointFile.delete() ) {
+            throw new IOException( "Can not delete " + checkpointFile );
+        }
+        return 0;
     }
     
     
@@ -111,16 +301,17 @@ public abstract class BookGenerator {
         txt = new BufferedOutputStream(txt);
         PrintStream ps = new PrintStream(txt, false, "UTF8");
         
-        //Save as word list
-        String[] words = book.getWords();
-        Arrays.sort( words );
-        for(int i=0; i<words.length; i++){
-            ps.print( words[i] +'\n' );
-            dictPs.print( words[i] +'\n' );
+        //Save as sorted word list
+        Iterator<String> words = book.getSortedWords();
+        while(words.hasNext()){
+            String word = words.next();
+            ps.print( word +'\n' );
+            dictPs.print( word +'\n' );
         }
         ps.close();
         dictPs.close();
         saveStatistics(dictFile);
+        book.deleteCheckpoints();
     }
     
     /**
@@ -136,11 +327,31 @@ public abstract class BookGenerator {
         statistics += "Char count in dictionary: "+book.getCharCount()+"\r\n";
         statistics += "Dictionary size on disk (bytes): " + dictFile.length()+"\r\n";
         
+        statistics += "Dictionary size in memory without merged suffixes (bytes): " + getDataSize( dictFile, false )+"\r\n";
+        statistics += "Dictionary size in memory (bytes): " + getDataSize( dictFile, true )+"\r\n";
+        
+        System.out.println(statistics);
+        FileOutputStream out = new FileOutputStream("statistics.txt");
+        out.write( statistics.getBytes() );
+        out.close();
+    }
+    
+    /**
+     * Load the ortho file like JOrtho and get the size of the created dictionary.
+     * @param dictFile the created ortho file.
+     * @param minimize if equal suffixes of the words are merged
+     * @return the size of the dictionary in memory
+     * @throws Exception if an error occur
+     */
+    private static Integer getDataSize(File dictFile, boolean minimize) throws Exception{
         // we use reflection, because the methods are not public and should not be public
-        Class clazz = Class.forName("com.inet.jortho.DictionaryFactory");
-        Constructor constructor = clazz.getConstructor();
+        Class<?> clazz = Class.forName("com.inet.jortho.DictionaryFactory");
+        Constructor<?> constructor = clazz.getConstructor();
         constructor.setAccessible(true);
         Object factory = constructor.newInstance();
+        Method setMinimize = clazz.getDeclaredMethod( "setMinimize", boolean.class );
+        setMinimize.setAccessible(true);
+        setMinimize.invoke(factory, minimize);
         Method loadWordList = clazz.getDeclaredMethod( "loadWordList", URL.class );
         loadWordList.setAccessible(true);
         loadWordList.invoke(factory, dictFile.toURL());
@@ -149,13 +360,7 @@ public abstract class BookGenerator {
         Object dictionary = create.invoke( factory );
         Method getDataSize = dictionary.getClass().getDeclaredMethod( "getDataSize" );
         getDataSize.setAccessible(true);
-        Integer size = (Integer)getDataSize.invoke( dictionary );
-        statistics += "Dictionary size in memory (bytes): " + size+"\r\n";
-        
-        System.out.println(statistics);
-        FileOutputStream out = new FileOutputStream("statistics.txt");
-        out.write( statistics.getBytes() );
-        out.close();
+        return (Integer)getDataSize.invoke( dictionary );
     }
     
     /**
@@ -253,6 +458,29 @@ public abstract class BookGenerator {
         return true;
     }    
     
+    /**
+     * Check a page of the Wiktionary and add the word if it is valid. This is called from the threads of the Parser,
+     * every implementation of isValidWord and isValidLanguage must be thread safe.
+     * @param word the title of the page
+     * @param text the wiki text of the page
+     */
+    final void addPage(String word, String text){
+        word = Utils.replaceUnicodeQuotation( word );
+        if(!isValidWord(word)){
+            return;
+        }
+        try{
+            book.incTitleCount();
+            text = Utils.replaceUnicodeQuotation( text );
+            if(isValidLanguage(word, text)){
+                book.incLanguageTitleCount();
+                addWord(word);
+            }
+        }catch(Throwable th){
+            th.printStackTrace();
+        }
+    }
+    
     /**
      * Add a word to the tree.
      * @param word can not be null
@@ -35,6 +35,16 @@ import java.util.regex.Pattern;
  */
 public class BookGenerator_de extends BookGenerator {
 
+    /** the patterns of the chapter headers, the index is the count of = in the header */
+    private static final Pattern[] CHAPTER_PATTERNS = new Pattern[7];
+    static {
+        String marker = "";
+        for( int i = 1; i < CHAPTER_PATTERNS.length; i++ ) {
+            marker += '=';
+            CHAPTER_PATTERNS[i] = createChapterPattern( marker );
+        }
+    }
+
     public BookGenerator_de(){
         addWord( "Ihnen" );
         addWord( "Ihrer" );
@@ -244,7 +254,7 @@ public class BookGenerator_de extends BookGenerator {
             return wikiText.substring(startIdx);
         }
 
-        Pattern pattern = Pattern.compile( "^" + marker + "[^=].*[^=]" + marker + "\\s*$", Pattern.MULTILINE );
+        Pattern pattern = prefixSize < CHAPTER_PATTERNS.length ? CHAPTER_PATTERNS[prefixSize] : createChapterPattern( marker );
         Matcher matcher = pattern.matcher( wikiText );
 
         if( matcher.find( endIdx ) ) {
@@ -258,6 +268,14 @@ public class BookGenerator_de extends BookGenerator {
         return wikiText.substring(startIdx);
     }
     
+    /**
+     * Create the pattern for the next header of a chapter with the same level.
+     * @param marker the = characters of the header
+     */
+    private static Pattern createChapterPattern( String marker ){
+        return Pattern.compile( "^" + marker + "[^=].*[^=]" + marker + "\\s*$", Pattern.MULTILINE );
+    }
+    
     /**
      * Liefert einen Substring mit der aktuellen Konjugation/Flexion Tabelle des Wikitextes
      */
@@ -22,9 +22,6 @@
  */
 package com.inet.jorthodictionaries;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 /**
  * 
  * @author Volker Berlin
@@ -220,7 +217,7 @@ public class BookGenerator_pl_Engish extends BookGenerator {
      * @param suffixe
      */
     private void templateWithRoots( String wikiText, String templateId, String[]... suffixes ) {
-        int idx = findTemplate( wikiText, templateId );
+        int idx = BookUtils.findTemplate( wikiText, templateId, 0 );
         if( idx < 0 ) {
             return;
         }
@@ -247,7 +244,7 @@ public class BookGenerator_pl_Engish extends BookGenerator {
     }
 
     private void templateWithWordList( String wikiText, String templateId ) {
-        int idx = findTemplate( wikiText, templateId );
+        int idx = BookUtils.findTemplate( wikiText, templateId, 0 );
         if( idx < 0 ) {
             return;
         }
@@ -268,23 +265,4 @@ public class BookGenerator_pl_Engish extends BookGenerator {
         }
     }
 
-    /**
-     * Find a template name in the wiki text. the problem are possible whitespaces.
-     * 
-     * @param wikiText
-     * @param tempalateName
-     * @return the index after the first | or -1.
-     */
-    private int findTemplate( String wikiText, String tempalateName ) {
-        //find {{  tempalateName  |
-        Pattern pattern = Pattern.compile( "\\{\\{\\s*" + tempalateName + "\\s*\\|" );
-        Matcher matcher = pattern.matcher( wikiText );
-
-        if( matcher.find() ) {
-            return matcher.end();
-        }
-
-        return -1;
-    }
-
 }
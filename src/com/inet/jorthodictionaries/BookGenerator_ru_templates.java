@@ -46,6 +46,14 @@ public class BookGenerator_ru_templates extends BookGenerator {
         return templates;
     }
     
+    /**
+     * The templates are not saved in the book, that this pass is ever completely repeated.
+     */
+    @Override
+    boolean isResumable() {
+        return false;
+    }
+    
     /**
      * We search only templates and not valid rules.
      */
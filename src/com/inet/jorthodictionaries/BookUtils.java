@@ -23,8 +23,6 @@
 package com.inet.jorthodictionaries;
 
 import java.util.Properties;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class BookUtils {
 
@@ -101,22 +99,17 @@ public class BookUtils {
     }
 
     /**
-     * Find a template name in the wiki text. the problem are possible whitespaces.
+     * Find a template name in the wiki text. the problem are possible whitespaces. All templates of the text are
+     * scanned on the first call, the next calls for the same text need only a lookup.
      * 
      * @param wikiText
      * @param tempalateName
      * @return the index after the first | or -1.
+     * @see TemplateScanner
      */
     static int findTemplate( String wikiText, String tempalateName, int fromIndex ) {
         //find {{  tempalateName  |
-        Pattern pattern = Pattern.compile( "\\{\\{\\s*\\Q" + tempalateName.replace( " ", "\\E\\s+\\Q" ) + "\\E\\s*\\|" );
-        Matcher matcher = pattern.matcher( wikiText );
-    
-        if( matcher.find( fromIndex ) ) {
-            return matcher.end();
-        }
-    
-        return -1;
+        return TemplateScanner.get( wikiText ).find( tempalateName, fromIndex );
     }
     
     /**
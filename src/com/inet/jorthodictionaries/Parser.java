@@ -24,6 +24,8 @@ package com.inet.jorthodictionaries;
 
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
@@ -31,11 +33,10 @@ import javax.xml.parsers.SAXParserFactory;
 import org.xml.sax.*;
 import org.xml.sax.helpers.*;
 
-import com.inet.jortho.Utils;
-
 
 /**
- * This class parse the XML file from a dump of the Wiktionary.
+ * This class parse the XML file from a dump of the Wiktionary. With more as one thread the parser only reads the
+ * title and the text of the pages and put it in a bounded queue. The pages are checked from a pool of worker threads.
  * 
  * @author Volker Berlin
  */
@@ -54,17 +55,46 @@ public class Parser extends DefaultHandler{
     private String word;
     private String text;
     
-    Parser(BookGenerator generator, InputStream stream) throws Exception{
+    /** the pages for the workers, is null if the pages are checked in the parser thread */
+    private final BlockingQueue<String[]> pages;
+    /** marker for the end of the pages */
+    private static final String[] END = new String[0];
+    
+    /** the count of pages that are already checked in a previous run */
+    private final int skipPages;
+    private int pageCount;
+    /** the count of pages that are put in the queue and that the workers have checked, finishedCount is guarded by the queue */
+    private int queuedCount;
+    private int finishedCount;
+    
+    Parser(BookGenerator generator, InputStream stream, int threadCount, int skipPages) throws Exception{
         this.generator = generator;
+        this.skipPages = skipPages;
         
-        System.setProperty("entityExpansionLimit", "100000000");
-        //InputSource input = new InputSource(stream); 
-        InputSource input = new InputSource( new InputStreamReader(stream, "utf8") ); // hack for bug http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=7156085
-        SAXParserFactory spf = SAXParserFactory.newInstance();
-        SAXParser sp = spf.newSAXParser();
-        ParserAdapter pa = new ParserAdapter(sp.getParser());
-        pa.setContentHandler(this);
-        pa.parse(input);
+        Thread[] workers = new Thread[threadCount > 1 ? threadCount : 0];
+        pages = workers.length > 0 ? new ArrayBlockingQueue<String[]>( 16 * threadCount ) : null;
+        for( int i = 0; i < workers.length; i++ ) {
+            workers[i] = new Thread( new Worker(), "Wiktionary page worker " + i );
+            workers[i].start();
+        }
+        try{
+            System.setProperty("entityExpansionLimit", "100000000");
+            //InputSource input = new InputSource(stream); 
+            InputSource input = new InputSource( new InputStreamReader(stream, "utf8") ); // hack for bug http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=7156085
+            SAXParserFactory spf = SAXParserFactory.newInstance();
+            SAXParser sp = spf.newSAXParser();
+            ParserAdapter pa = new ParserAdapter(sp.getParser());
+            pa.setContentHandler(this);
+            pa.parse(input);
+        }finally{
+            // wait until all pages are checked
+            for( int i = 0; i < workers.length; i++ ) {
+                pages.put( END );
+            }
+            for( Thread worker : workers ) {
+                worker.join();
+            }
+        }
     }
     
     
@@ -97,31 +127,69 @@ public class Parser extends DefaultHandler{
         switch(currentTag){
             case TITLE:
                 word = data.toString();
-                word = Utils.replaceUnicodeQuotation( word );
-                if(!generator.isValidWord(word)){
-                    word = null;
-                }
                 break;
             case TEXT:
                 text = data.toString();
                 break;
             default:
                 if("page".equals(localName)){
-                    if(word != null){
-                        try{
-                            generator.getBook().incTitleCount();
-                            text = Utils.replaceUnicodeQuotation( text );
-                            if(generator.isValidLanguage(word, text)){
-                                generator.getBook().incLanguageTitleCount();
-                                generator.addWord(word);
+                    if(word != null && pageCount >= skipPages){
+                        if(pages == null){
+                            generator.addPage( word, text );
+                        }else{
+                            try{
+                                pages.put( new String[]{ word, text } );
+                                queuedCount++;
+                            }catch(InterruptedException ex){
+                                throw new SAXException( ex );
                             }
-                        }catch(Throwable th){
-                            th.printStackTrace();
                         }
                     }
+                    word = null;
+                    text = null;
+                    if(++pageCount % BookGenerator.CHECKPOINT_INTERVAL == 0 && pageCount > skipPages){
+                        checkpoint();
+                    }
                 }
         }
         currentTag = NONE;
     }
+    
+    /**
+     * Wait until the workers have checked all pages and write a checkpoint.
+     */
+    private void checkpoint() throws SAXException {
+        try{
+            if(pages != null){
+                synchronized( pages ) {
+                    while( finishedCount < queuedCount ) {
+                        pages.wait();
+                    }
+                }
+            }
+            generator.writeCheckpoint( pageCount );
+        }catch(Exception ex){
+            throw new SAXException( ex );
+        }
+    }
+    
+    /**
+     * Check the pages from the queue until the end marker.
+     */
+    private class Worker implements Runnable {
+        public void run() {
+            try{
+                for( String[] page = pages.take(); page != END; page = pages.take() ) {
+                    generator.addPage( page[0], page[1] );
+                    synchronized( pages ) {
+                        finishedCount++;
+                        pages.notifyAll();
+                    }
+                }
+            }catch(InterruptedException ex){
+                ex.printStackTrace();
+            }
+        }
+    }
 
 }
@@ -0,0 +1,141 @@
+/*
+ *  JOrtho
+ *
+ *  Copyright (C) 2005-2011 by i-net software
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License as 
+ *  published by the Free Software Foundation; either version 2 of the
+ *  License, or (at your option) any later version. 
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ *  USA.
+ */
+package com.inet.jorthodictionaries;
+
+import java.util.HashMap;
+
+/**
+ * The positions of all templates with parameters {{name|...}} in a wiki text. The text is scanned only once, after
+ * that every template can be found with a lookup. The whitespaces in the template names are normalized to a single
+ * space like the generators write it.
+ */
+class TemplateScanner {
+
+    /** the last scanned text of every thread, the generators search many templates in the same page */
+    private static final ThreadLocal<TemplateScanner> LAST = new ThreadLocal<TemplateScanner>();
+
+    private final String wikiText;
+
+    /** pairs of the index of {{ and the index after the first | for every template name */
+    private final HashMap<String, int[]> templates = new HashMap<String, int[]>();
+
+    private TemplateScanner( String wikiText ) {
+        this.wikiText = wikiText;
+        StringBuilder name = new StringBuilder();
+        final int length = wikiText.length();
+        for( int start = wikiText.indexOf( "{{" ); start >= 0; start = wikiText.indexOf( "{{", start + 1 ) ) {
+            name.setLength( 0 );
+            boolean space = false;
+            for( int idx = start + 2; idx < length; idx++ ) {
+                char ch = wikiText.charAt( idx );
+                if( ch == '|' ) {
+                    if( name.length() > 0 ) {
+                        add( name.toString(), start, idx + 1 );
+                    }
+                    break;
+                }
+                if( ch == '{' || ch == '}' ) {
+                    break;
+                }
+                if( isWhitespace( ch ) ) {
+                    space = name.length() > 0;
+                } else {
+                    if( space ) {
+                        name.append( ' ' );
+                        space = false;
+                    }
+                    name.append( ch );
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the templates of a wiki text. The result of the last call in the current thread is reused if it is the same
+     * text.
+     * 
+     * @param wikiText the text of a page
+     * @return the templates
+     */
+    static TemplateScanner get( String wikiText ) {
+        TemplateScanner scanner = LAST.get();
+        if( scanner == null || scanner.wikiText != wikiText ) {
+            scanner = new TemplateScanner( wikiText );
+            LAST.set( scanner );
+        }
+        return scanner;
+    }
+
+    /**
+     * Find a template.
+     * 
+     * @param templateName the name of the template with single spaces between the words
+     * @param fromIndex the first possible position of the template
+     * @return the index after the first | or -1.
+     */
+    int find( String templateName, int fromIndex ) {
+        int[] positions = templates.get( templateName );
+        if( positions != null ) {
+            for( int i = 1; i < positions[0]; i += 2 ) {
+                if( positions[i] >= fromIndex ) {
+                    return positions[i + 1];
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Save a found template.
+     */
+    private void add( String templateName, int start, int end ) {
+        int[] positions = templates.get( templateName );
+        if( positions == null ) {
+            positions = new int[5];
+            positions[0] = 1;
+            templates.put( templateName, positions );
+        } else if( positions[0] + 2 > positions.length ) {
+            int[] temp = new int[2 * positions.length + 1];
+            System.arraycopy( positions, 0, temp, 0, positions.length );
+            positions = temp;
+            templates.put( templateName, positions );
+        }
+        positions[positions[0]] = start;
+        positions[positions[0] + 1] = end;
+        positions[0] += 2;
+    }
+
+    /**
+     * The whitespaces of \s in a regular expression.
+     */
+    private static boolean isWhitespace( char ch ) {
+        switch( ch ) {
+            case ' ':
+            case '\t':
+            case '\n':
+            case '\u000B':
+            case '\f':
+            case '\r':
+                return true;
+        }
+        return false;
+    }
+}
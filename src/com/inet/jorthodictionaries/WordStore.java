@@ -0,0 +1,246 @@
+/*
+ *  JOrtho
+ *
+ *  Copyright (C) 2005-2011 by i-net software
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License as 
+ *  published by the Free Software Foundation; either version 2 of the
+ *  License, or (at your option) any later version. 
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ *  USA.
+ */
+package com.inet.jorthodictionaries;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of words with a small memory footprint. The characters of all words are saved one after the other in a
+ * single char array. A hash table with open addressing holds only the numbers of the words. A word needs 2 bytes per
+ * character and about 12 bytes for the management, a String in a HashSet needs more than 80 bytes. No String objects
+ * are created until the words are read.
+ */
+class WordStore {
+
+    private char[] chars;
+    private int    charCount;
+
+    /** the start of every word in chars, with one additional entry for the end of the last word */
+    private int[]  starts;
+    private int    wordCount;
+
+    /** the hash table with the number of the words plus 1, 0 is an empty slot */
+    private int[]  table;
+
+    WordStore() {
+        clear();
+    }
+
+    /**
+     * Remove all words.
+     */
+    synchronized void clear() {
+        chars = new char[1 << 16];
+        charCount = 0;
+        starts = new int[1 << 12];
+        wordCount = 0;
+        table = new int[1 << 13];
+    }
+
+    /**
+     * Add a word if it is not in the set.
+     * 
+     * @param word the word
+     * @return true if the word was added, false if it was already in the set
+     */
+    synchronized boolean add( String word ) {
+        int length = word.length();
+        int mask = table.length - 1;
+        int slot = spread( word.hashCode() ) & mask;
+        for( ; table[slot] != 0; slot = (slot + 1) & mask ) {
+            if( isEqual( table[slot] - 1, word ) ) {
+                return false;
+            }
+        }
+        if( charCount + length > chars.length ) {
+            char[] temp = new char[Math.max( charCount + length, 2 * chars.length )];
+            System.arraycopy( chars, 0, temp, 0, charCount );
+            chars = temp;
+        }
+        if( wordCount + 2 > starts.length ) {
+            int[] temp = new int[2 * starts.length];
+            System.arraycopy( starts, 0, temp, 0, wordCount + 1 );
+            starts = temp;
+        }
+        word.getChars( 0, length, chars, charCount );
+        charCount += length;
+        starts[++wordCount] = charCount;
+        table[slot] = wordCount;
+        if( 2 * wordCount > table.length ) {
+            rehash();
+        }
+        return true;
+    }
+
+    /**
+     * The count of words.
+     */
+    synchronized int size() {
+        return wordCount;
+    }
+
+    /**
+     * The count of characters of all words.
+     */
+    synchronized int getCharCount() {
+        return charCount;
+    }
+
+    /**
+     * Iterate over the words in the order in which they were added. No words should be added while iterating.
+     * 
+     * @return the words
+     */
+    synchronized Iterator<String> iterator() {
+        int[] order = new int[wordCount];
+        for( int i = 0; i < order.length; i++ ) {
+            order[i] = i;
+        }
+        return new Words( order );
+    }
+
+    /**
+     * Iterate over the words in the sort order of String.compareTo(). Only an int array with the numbers of the words
+     * is sorted. No words should be added while iterating.
+     * 
+     * @return the sorted words
+     */
+    synchronized Iterator<String> sortedIterator() {
+        int[] order = new int[wordCount];
+        for( int i = 0; i < order.length; i++ ) {
+            order[i] = i;
+        }
+        // bottom-up merge sort
+        int[] temp = new int[order.length];
+        for( int width = 1; width < order.length; width *= 2 ) {
+            for( int low = 0; low < order.length; low += 2 * width ) {
+                int mid = Math.min( low + width, order.length );
+                int high = Math.min( low + 2 * width, order.length );
+                int i = low;
+                int j = mid;
+                for( int k = low; k < high; k++ ) {
+                    if( i < mid && (j >= high || compare( order[i], order[j] ) <= 0) ) {
+                        temp[k] = order[i++];
+                    } else {
+                        temp[k] = order[j++];
+                    }
+                }
+            }
+            int[] swap = order;
+            order = temp;
+            temp = swap;
+        }
+        return new Words( order );
+    }
+
+    /**
+     * Compare two words like String.compareTo().
+     */
+    private int compare( int word1, int word2 ) {
+        int idx1 = starts[word1];
+        int end1 = starts[word1 + 1];
+        int idx2 = starts[word2];
+        int end2 = starts[word2 + 1];
+        for( ; idx1 < end1 && idx2 < end2; idx1++, idx2++ ) {
+            if( chars[idx1] != chars[idx2] ) {
+                return chars[idx1] - chars[idx2];
+            }
+        }
+        return (end1 - idx1) - (end2 - idx2);
+    }
+
+    /**
+     * Compare a saved word with a String.
+     */
+    private boolean isEqual( int wordNumber, String word ) {
+        int start = starts[wordNumber];
+        if( starts[wordNumber + 1] - start != word.length() ) {
+            return false;
+        }
+        for( int i = 0; i < word.length(); i++ ) {
+            if( chars[start + i] != word.charAt( i ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Double the size of the hash table.
+     */
+    private void rehash() {
+        table = new int[2 * table.length];
+        int mask = table.length - 1;
+        for( int w = 0; w < wordCount; w++ ) {
+            // the same value as String.hashCode()
+            int hash = 0;
+            for( int i = starts[w]; i < starts[w + 1]; i++ ) {
+                hash = 31 * hash + chars[i];
+            }
+            int slot = spread( hash ) & mask;
+            while( table[slot] != 0 ) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = w + 1;
+        }
+    }
+
+    /**
+     * Spread the bits of a hash code for the mask of the hash table.
+     */
+    private static int spread( int hash ) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        return hash ^ (hash >>> 13);
+    }
+
+    /**
+     * Creates the Strings of the words in the given order.
+     */
+    private class Words implements Iterator<String> {
+
+        private final int[] order;
+
+        private int         idx;
+
+        Words( int[] order ) {
+            this.order = order;
+        }
+
+        public boolean hasNext() {
+            return idx < order.length;
+        }
+
+        public String next() {
+            if( idx >= order.length ) {
+                throw new NoSuchElementException();
+            }
+            int word = order[idx++];
+            int start = starts[word];
+            return new String( chars, start, starts[word + 1] - start );
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,358 @@
+/*
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jlokalize;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.tools.common.TreeNode;
+
+/**
+ * Headless entry point for checking translation projects without the editor,
+ * e.g. in a continuous integration build. Every argument is a language file
+ * (the project it belongs to is checked) or a directory that is searched
+ * recursively for projects. The projects are opened in parallel, the report
+ * is written to standard out in the order of the project names, one tab
+ * separated line per finding:
+ *
+ * <pre>
+ * coverage      project  locale  percent  translated  total
+ * missing       project  locale  key      (only in the parent language)
+ * orphaned      project  locale  key      (only in this language)
+ * untranslated  project  locale  key      (empty or equal to the parent text)
+ * error         project           message
+ * </pre>
+ *
+ * The status of a key is the same as in the keys table of the editor, see
+ * {@link KeyStatus}. With the option -normalize every language file is
+ * rewritten in the standard format of the editor after the check. The exit
+ * code is 0 if all projects are complete, 1 if anything is missing, orphaned
+ * or untranslated and 2 if a project could not be processed.
+ */
+public class BatchCheck {
+
+    private static final Logger LOG = Logger.getLogger(BatchCheck.class.getName());
+    /** Extension of the language files that are searched in directories. */
+    private static final String Extension = ".properties";
+    /** Separator between the fields of a report line. */
+    private static final char Separator = '\t';
+    /** Exit codes, the highest one of all projects is returned. */
+    private static final int Complete = 0;
+    private static final int Incomplete = 1;
+    private static final int Failed = 2;
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private BatchCheck() {
+    }
+
+    /**
+     * Main entry point of the batch mode.
+     *
+     * @param args [-normalize] [-threads n] file or directory ...
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+
+        boolean normalize = false;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<File> files = new ArrayList<File>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-normalize")) {
+                normalize = true;
+            } else if (args[i].equals("-threads") && i + 1 < args.length) {
+                threads = Math.max(1, Integer.parseInt(args[++i]));
+            } else {
+                files.add(new File(args[i]));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: java -cp JLokalize.jar " + BatchCheck.class.getName()
+                    + " [-normalize] [-threads n] file or directory ...");
+            System.exit(Failed);
+        }
+
+        // one representative file for every project
+        Map<String, File> projects = new TreeMap<String, File>();
+        for (File file : files) {
+            if (file.isDirectory()) {
+                collectProjects(file, projects);
+            } else {
+                // open() only finds the file without language codes if it is the given one
+                String name = getProjectName(file);
+                File master = new File(name + Extension);
+                projects.put(name, master.isFile() ? master : file);
+            }
+        }
+
+        System.exit(check(projects, normalize, threads));
+    }
+
+    /**
+     * Checks the projects in parallel and prints the reports in the order of
+     * the project names as soon as they are available.
+     *
+     * @param projects Project names and one file of each project.
+     * @param normalize If true the language files are rewritten after the check.
+     * @param threads The number of projects that are processed at the same time.
+     * @return The exit code.
+     */
+    public static int check(Map<String, File> projects, final boolean normalize, int threads) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        int code = Complete;
+        try {
+            List<Future<Report>> reports = new ArrayList<Future<Report>>(projects.size());
+            for (final Map.Entry<String, File> project : projects.entrySet()) {
+                reports.add(executor.submit(new Callable<Report>() {
+                    @Override
+                    public Report call() {
+                        return checkProject(project.getKey(), project.getValue(), normalize);
+                    }
+                }));
+            }
+            for (Future<Report> future : reports) {
+                Report report = future.get();
+                System.out.print(report.text);
+                code = Math.max(code, report.code);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            code = Failed;
+        } catch (ExecutionException ex) {
+            LOG.log(Level.SEVERE, null, ex.getCause());
+            code = Failed;
+        } finally {
+            executor.shutdownNow();
+        }
+        System.out.flush();
+        return code;
+    }
+
+    /**
+     * Internal function! Opens one project and compares every language that
+     * was loaded from a file with its parent language.
+     *
+     * @param name The name of the project used in the report.
+     * @param file One of the files of the project.
+     * @param normalize If true the language files are rewritten after the check.
+     * @return The report.
+     */
+    private static Report checkProject(String name, File file, boolean normalize) {
+        Report report = new Report(name);
+        LanguageTreeProject project = new LanguageTreeProject();
+        try {
+            if (project.open(file.getAbsoluteFile()) == false) {
+                report.error("could not be opened");
+                return report;
+            }
+            for (TreeNode<LanguageProperties> node : project.getRoot().subTreeNodesList()) {
+                LanguageProperties language = node.getData();
+                LanguageProperties parent = LanguageTreeManager.getParentLanguage(node);
+                if (parent == null || language.hasLocation() == false) {
+                    // the master or a language that only exists in the tree
+                    continue;
+                }
+                checkLanguage(report, language, parent);
+            }
+            if (normalize && project.normalize() == false) {
+                report.error("could not be normalized");
+            }
+        } catch (RuntimeException ex) {
+            LOG.log(Level.WARNING, "Checking project " + name + " failed.", ex);
+            report.error(String.valueOf(ex));
+        }
+        return report;
+    }
+
+    /**
+     * Internal function! Compares the keys of a language with those of its
+     * parent language.
+     *
+     * @param report The report of the project.
+     * @param language The language.
+     * @param parent The parent language.
+     */
+    private static void checkLanguage(Report report, LanguageProperties language, LanguageProperties parent) {
+        String locale = getLocaleName(language);
+        Set<String> keys = new TreeSet<String>(language.getAllTextKeysAsSet());
+        keys.addAll(parent.getAllTextKeysAsSet());
+
+        // same counting as the coverage of the keys table
+        int everywhere = 0;
+        int onlyInParent = 0;
+        List<String> missing = new ArrayList<String>();
+        List<String> orphaned = new ArrayList<String>();
+        List<String> untranslated = new ArrayList<String>();
+        for (String key : keys) {
+            switch (KeyStatus.of(language, parent, key)) {
+                case Everywhere:
+                    everywhere++;
+                    String text = language.getKeyText(key);
+                    if (text.trim().length() == 0 || text.equals(parent.getKeyText(key))) {
+                        untranslated.add(key);
+                    }
+                    break;
+                case OnlyInParent:
+                    onlyInParent++;
+                    missing.add(key);
+                    break;
+                case OnlyHere:
+                    orphaned.add(key);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        int total = everywhere + onlyInParent;
+        double coverage = total == 0 ? 100 : 100.0 * everywhere / total;
+        report.line("coverage", locale, String.format(Locale.ROOT, "%.1f", coverage), String.valueOf(everywhere), String.valueOf(total));
+        report.lines("missing", locale, missing);
+        report.lines("orphaned", locale, orphaned);
+        report.lines("untranslated", locale, untranslated);
+        if (!missing.isEmpty() || !orphaned.isEmpty() || !untranslated.isEmpty()) {
+            report.code = Math.max(report.code, Incomplete);
+        }
+    }
+
+    /**
+     * Internal function! Searches a directory and all sub directories for
+     * language files and adds one file of every project.
+     *
+     * @param directory The directory.
+     * @param projects Project names and one file of each project.
+     */
+    private static void collectProjects(File directory, Map<String, File> projects) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            LOG.log(Level.WARNING, "Cannot list directory {0}.", directory);
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            if (file.getName().startsWith(".")) {
+                // hidden files and directories of version control systems
+                continue;
+            }
+            if (file.isDirectory()) {
+                collectProjects(file, projects);
+            } else if (file.getName().endsWith(Extension)) {
+                // sorted, so the file without language codes comes first
+                String name = getProjectName(file);
+                if (projects.containsKey(name) == false) {
+                    projects.put(name, file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Internal function! The project name is the directory and the base name
+     * of the files, i.e. everything until the first "_" or the extension, like
+     * in {@link LanguageTreeProject#open(File)}.
+     *
+     * @param file A language file.
+     * @return The name of the project.
+     */
+    private static String getProjectName(File file) {
+        String base = file.getName();
+        int k = base.indexOf('_');
+        if (k == -1) {
+            k = base.lastIndexOf('.');
+        }
+        if (k != -1) {
+            base = base.substring(0, k);
+        }
+        File directory = file.getParentFile();
+        return directory == null ? base : new File(directory, base).getPath();
+    }
+
+    /**
+     * Internal function! The language codes of a language joined by "_".
+     *
+     * @param language The language.
+     * @return For example "de_AT".
+     */
+    private static String getLocaleName(LanguageProperties language) {
+        StringBuilder builder = new StringBuilder();
+        for (String code : new String[]{language.getLanguage(), language.getCountry(), language.getVariant()}) {
+            if (code != null) {
+                if (builder.length() > 0) {
+                    builder.append('_');
+                }
+                builder.append(code);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The report lines of one project and its exit code.
+     */
+    private static class Report {
+
+        private final String project;
+        private final StringBuilder text = new StringBuilder();
+        private int code = Complete;
+
+        Report(String project) {
+            this.project = project;
+        }
+
+        void line(String type, String locale, String... values) {
+            text.append(type).append(Separator).append(escape(project)).append(Separator).append(locale);
+            for (String value : values) {
+                text.append(Separator).append(escape(value));
+            }
+            text.append('\n');
+        }
+
+        void lines(String type, String locale, List<String> keys) {
+            for (String key : keys) {
+                line(type, locale, key);
+            }
+        }
+
+        void error(String message) {
+            line("error", "", message);
+            code = Failed;
+        }
+
+        /**
+         * Keys can contain any character, so line breaks and tabs are written
+         * like in the properties files.
+         */
+        private static String escape(String value) {
+            if (value.indexOf(Separator) == -1 && value.indexOf('\n') == -1 && value.indexOf('\r') == -1 && value.indexOf('\\') == -1) {
+                return value;
+            }
+            return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+        }
+    }
+}
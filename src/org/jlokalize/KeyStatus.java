@@ -24,5 +24,32 @@ package org.jlokalize;
  * @author Trilarion 2011
  */
 public enum KeyStatus {
-    OnlyHere, OnlyInParent, Everywhere, AlreadyDeleted
+    OnlyHere, OnlyInParent, Everywhere, AlreadyDeleted;
+
+    /**
+     * Determines the status of a key in a language compared to its parent.
+     *
+     * @param language The language.
+     * @param parent The parent language, null for the master.
+     * @param key The key.
+     * @return The KeyStatus.
+     */
+    public static KeyStatus of(LanguageProperties language, LanguageProperties parent, String key) {
+        boolean wehave = language.containsAsKey(key);
+        boolean upstream = parent == null || parent.containsAsKey(key);
+
+        if (upstream == true) {
+            if (wehave == true) {
+                return Everywhere;
+            } else {
+                return OnlyInParent;
+            }
+        } else {
+            if (wehave == true) {
+                return OnlyHere;
+            } else {
+                return AlreadyDeleted;
+            }
+        }
+    }
 }
@@ -14,10 +14,12 @@
  */
 package org.jlokalize;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 import javax.swing.JProgressBar;
 import javax.swing.table.AbstractTableModel;
 import org.tools.common.CentralStatic;
@@ -46,12 +48,35 @@ import org.tools.i18n.PropertyWithStats;
 public class KeysTableModel extends AbstractTableModel {
 
     private static final long serialVersionUID = 1L;
+    /**
+     * Order of the keys in the table: alphabetically ignoring case, keys that
+     * only differ in case are ordered case sensitive so that each key has a
+     * unique position (needed for the binary search).
+     */
+    private static final Comparator<String> KeyOrder = new Comparator<String>() {
+        @Override
+        public int compare(String o1, String o2) {
+            int c = String.CASE_INSENSITIVE_ORDER.compare(o1, o2);
+            if (c == 0) {
+                c = o1.compareTo(o2);
+            }
+            return c;
+        }
+    };
     /** The underlying data structure */
     private LanguageProperties prop;
     /** The parent structure, we need separate object, not automatic parent of LanguageProperties */
     private LanguageProperties parent;
-    /** A list of all keys, including their status */
-    private List<String> keys = new LinkedList<String>();
+    /** A list of all keys, always sorted according to KeyOrder (random access and binary search) */
+    private List<String> keys = new ArrayList<String>();
+    /** The status of each key, same index as in keys */
+    private List<KeyStatus> states = new ArrayList<KeyStatus>();
+    /** The keys with status OnlyInParent, sorted like keys */
+    private TreeSet<String> notHereKeys = new TreeSet<String>(KeyOrder);
+    /** Number of keys with status Everywhere */
+    private int numEverywhere;
+    /** Number of keys with status OnlyInParent */
+    private int numOnlyInParent;
     /** The current active row in the table */
     private int activeRow = -1;
     /** Progress bar which is located below the keys table. */
@@ -130,7 +155,7 @@ public class KeysTableModel extends AbstractTableModel {
         String key = keys.get(rowIndex);
         entry.key = key;
         entry.modified = prop.modified(key);
-        entry.status = determineStatus(key);
+        entry.status = states.get(rowIndex);
         return entry;
     }
     // end of AbstractTableModel implementation specific methods
@@ -144,20 +169,9 @@ public class KeysTableModel extends AbstractTableModel {
      */
     public void update(TreeNode<LanguageProperties> node) {
 
-        // get master node
-        TreeNode<LanguageProperties> master = LanguageTreeManager.getMasterNode(node.getRoot());
-
         // figure out, what this combination of node and master means and set prop and parent
         prop = node.getData();
-        if (node != node.getRoot() && node != master) {
-            if (node.getParent() == node.getRoot()) {
-                parent = master.getData();
-            } else {
-                parent = node.getParent().getData();
-            }
-        } else {
-            parent = null;
-        }
+        parent = LanguageTreeManager.getParentLanguage(node);
         
         // complete rebuild
         rebuild();
@@ -169,7 +183,7 @@ public class KeysTableModel extends AbstractTableModel {
     public void clear() {
 
         // clear all internal variables
-        keys.clear();
+        clearKeys();
         prop = null;
         parent = null;
         activeRow = -1;
@@ -211,7 +225,8 @@ public class KeysTableModel extends AbstractTableModel {
      * @return The current index in the key list or -1 if not in list. 
      */
     public int getRow(String key) {
-        return keys.indexOf(key);
+        int row = Collections.binarySearch(keys, key, KeyOrder);
+        return row >= 0 ? row : -1;
     }
 
     /**
@@ -248,6 +263,9 @@ public class KeysTableModel extends AbstractTableModel {
                 changed = true;
             }
             if (changed) {
+                // the key may now be here
+                updateStatus(activeRow);
+
                 // update the status bar
                 updateProgressBar();
 
@@ -269,21 +287,21 @@ public class KeysTableModel extends AbstractTableModel {
      * @return Next row or -1 if none is existing.
      */
     public int getNextNotHereKey(int row) {
+        if (notHereKeys.isEmpty()) {
+            // nothing found
+            return -1;
+        }
         // search from row + 1 until the end
-        int i;
-        for (i = row + 1; i < keys.size(); i++) {
-            if (determineStatus(keys.get(i)) == KeyStatus.OnlyInParent) {
-                return i;
-            }
+        String key = null;
+        if (row >= 0 && row < keys.size()) {
+            key = notHereKeys.higher(keys.get(row));
         }
-        // search from the beginning until the last one
-        for (i = 0; i < row; i++) {
-            if (determineStatus(keys.get(i)) == KeyStatus.OnlyInParent) {
-                return i;
-            }
+        // search from the beginning
+        if (key == null) {
+            key = notHereKeys.first();
         }
-        // nothing found
-        return -1;
+        int next = getRow(key);
+        return next == row ? -1 : next;
     }
 
     /**
@@ -300,18 +318,19 @@ public class KeysTableModel extends AbstractTableModel {
         // we don't have it, put a new empty key in
         prop.putKeyText(key, "");
 
-        // if it is not in the list, add it and re-sort 
-        if (!keys.contains(key)) {
-            keys.add(key);
-            Collections.sort(keys, String.CASE_INSENSITIVE_ORDER);
-            // after resorting nothing is selected
+        // if it is not in the list, add it at its sorted position
+        int row = getRow(key);
+        if (row == -1) {
+            addKey(key);
+            // after inserting nothing is selected
             activeRow = -1;
             // signal that everything has changed
             fireTableDataChanged(); // keys have changed
             fireTableStructureChanged(); // column name may have changed                
         } else {
             // just signal that the row containing key has changed
-            fireTableCellUpdated(keys.indexOf(key), 0);
+            updateStatus(row);
+            fireTableCellUpdated(row, 0);
         }
 
         // update the status bar
@@ -338,7 +357,8 @@ public class KeysTableModel extends AbstractTableModel {
         prop.removeKey(key);
 
         // update the row in question
-        fireTableCellUpdated(keys.indexOf(key), 0);
+        updateStatus(activeRow);
+        fireTableCellUpdated(activeRow, 0);
 
         // update the status bar
         updateProgressBar();
@@ -363,21 +383,17 @@ public class KeysTableModel extends AbstractTableModel {
         String key = keys.get(activeRow);
 
         // test if newkey is not yet there
-        if (keys.contains(newKey)) {
+        if (getRow(newKey) != -1) {
             return -1;
         }
 
         // newkey is not in list, do the renaming
         prop.renameKey(key, newKey);
 
-        // add new key to keys list
-        keys.add(newKey);
-
-        // need to sort again
-        Collections.sort(keys, String.CASE_INSENSITIVE_ORDER);
-
-        // selection will be on new key
-        activeRow = keys.indexOf(newKey);
+        // add new key to keys list at its sorted position, selection will be on new key
+        activeRow = addKey(newKey);
+        // the old key is possibly not here anymore
+        updateStatus(getRow(key));
 
         // update status bar
         updateProgressBar();
@@ -413,22 +429,7 @@ public class KeysTableModel extends AbstractTableModel {
      * @return  The KeyStatus.
      */
     private KeyStatus determineStatus(String key) {
-        boolean wehave = prop.containsAsKey(key);
-        boolean upstream = parent == null || parent.containsAsKey(key);
-
-        if (upstream == true) {
-            if (wehave == true) {
-                return KeyStatus.Everywhere;
-            } else {
-                return KeyStatus.OnlyInParent;
-            }
-        } else {
-            if (wehave == true) {
-                return KeyStatus.OnlyHere;
-            } else {
-                return KeyStatus.AlreadyDeleted;
-            }
-        }
+        return KeyStatus.of(prop, parent, key);
     }
 
     /**
@@ -436,16 +437,10 @@ public class KeysTableModel extends AbstractTableModel {
      */
     private void updateProgressBar() {
         // update progress bar
-        int all = 0;
-        for (String key : keys) {
-            KeyStatus status = determineStatus(key);
-            if (status == KeyStatus.Everywhere || status == KeyStatus.OnlyInParent) {
-                all++;
-            }
-        }
+        int all = numEverywhere + numOnlyInParent;
 
         if (all > 0) {
-            all = 100 * countNumEverywhere() / all;
+            all = 100 * numEverywhere / all;
             // set content (i18n)
             PropertyWithStats lang = CentralStatic.retrieve("lang-prop");            
             String text = String.format("%s %d%%", lang.get("keystable.coverage"), all);
@@ -460,18 +455,12 @@ public class KeysTableModel extends AbstractTableModel {
     }
 
     /**
-     * Internal function! Calculates the number of keys, which are everywhere.
+     * Internal function! The number of keys, which are everywhere.
      *
      * @return Number of good keys.
      */
     private int countNumEverywhere() {
-        int num = 0;
-        for (String key : keys) {
-            if (determineStatus(key) == KeyStatus.Everywhere) {
-                num++;
-            }
-        }
-        return num;
+        return numEverywhere;
     }
     
     /**
@@ -480,7 +469,7 @@ public class KeysTableModel extends AbstractTableModel {
      */
     private void rebuild() {
         // clear keys list and active row
-        keys.clear();
+        clearKeys();
         activeRow = -1;
 
         // combine keyset from this and parent
@@ -493,7 +482,13 @@ public class KeysTableModel extends AbstractTableModel {
         // convert to list
         keys.addAll(keySet);
         // sort keys list
-        Collections.sort(keys, String.CASE_INSENSITIVE_ORDER);
+        Collections.sort(keys, KeyOrder);
+        // determine status of all keys
+        for (String key : keys) {
+            KeyStatus status = determineStatus(key);
+            states.add(status);
+            count(key, status, 1);
+        }
 
         // update status bar
         updateProgressBar();
@@ -502,5 +497,69 @@ public class KeysTableModel extends AbstractTableModel {
         fireTableDataChanged();
         fireTableStructureChanged();
 
-    }    
+    }
+
+    /**
+     * Internal function! Inserts a key (not yet in the list) at its sorted
+     * position.
+     *
+     * @param key The new key.
+     * @return The row of the new key.
+     */
+    private int addKey(String key) {
+        int row = -Collections.binarySearch(keys, key, KeyOrder) - 1;
+        KeyStatus status = determineStatus(key);
+        keys.add(row, key);
+        states.add(row, status);
+        count(key, status, 1);
+        return row;
+    }
+
+    /**
+     * Internal function! Determines the status of the key in a row again after
+     * the key has been changed and updates the counters.
+     *
+     * @param row The row.
+     */
+    private void updateStatus(int row) {
+        String key = keys.get(row);
+        KeyStatus status = determineStatus(key);
+        KeyStatus old = states.set(row, status);
+        if (old != status) {
+            count(key, old, -1);
+            count(key, status, 1);
+        }
+    }
+
+    /**
+     * Internal function! Adds or removes a key with a certain status from the
+     * counters.
+     *
+     * @param key The key.
+     * @param status Its status.
+     * @param delta 1 for adding, -1 for removing.
+     */
+    private void count(String key, KeyStatus status, int delta) {
+        if (status == KeyStatus.Everywhere) {
+            numEverywhere += delta;
+        } else if (status == KeyStatus.OnlyInParent) {
+            numOnlyInParent += delta;
+            if (delta > 0) {
+                notHereKeys.add(key);
+            } else {
+                notHereKeys.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Internal function! Empties the keys list and all status information.
+     */
+    private void clearKeys() {
+        keys.clear();
+        states.clear();
+        notHereKeys.clear();
+        numEverywhere = 0;
+        numOnlyInParent = 0;
+    }
 }
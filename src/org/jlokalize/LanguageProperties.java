@@ -39,6 +39,10 @@ public class LanguageProperties {
     private Property prop = new Property();
     /** The more versatile (than Property) map holding the key / text pairs (can also have null which we use for deleted keys) */
     private HashMap<String, String> map = new HashMap<String, String>(200);
+    /** The text keys (no comment keys) that are currently modified relative to prop, updated with every change of map */
+    private HashSet<String> modifiedKeys = new HashSet<String>();
+    /** The content last written by saveTemporary, becomes prop when the file is in place, null otherwise */
+    private Property written;
     /* Base name, i.e. project identifier */
     private String base;
     /** Clear name in the actual Locale, depends on language, country, variant and current Locale */
@@ -47,6 +51,8 @@ public class LanguageProperties {
     private String language, country, variant;
     /** Is master structure or not */
     private boolean master = false;
+    /** Path of the file this language was loaded from or last saved to, null if never */
+    private String location;
 
     /* For creating new languages */
     public LanguageProperties() {
@@ -240,6 +246,7 @@ public class LanguageProperties {
     public void putKeyText(String key, String text) {
         if (!key.endsWith(commentID)) {
             map.put(key, text);
+            updateModified(key);
         }
     }
 
@@ -268,6 +275,7 @@ public class LanguageProperties {
     public void putKeyComment(String key, String comment) {
         if (!key.endsWith(commentID)) {
             map.put(key + commentID, comment);
+            updateModified(key);
         }
     }
 
@@ -283,6 +291,7 @@ public class LanguageProperties {
         }
         map.put(key, null);
         map.put(key + commentID, null);
+        updateModified(key);
     }
 
     /**
@@ -302,21 +311,43 @@ public class LanguageProperties {
     }
 
     /**
-     * Determines if a key has been modified. Now there are different conditions
-     * which indicate that a key has been modified (relative to the original).
-     * We test for them all:
+     * Determines if a key has been modified (relative to the original). The
+     * answer is kept up to date by all methods changing keys, so this is just
+     * a lookup.
+     * 
+     * @param key The key to test.
+     * @return True if modified.
+     */
+    public boolean modified(String key) {
+        return modifiedKeys.contains(key);
+    }
+
+    /**
+     * Internal function! Updates the modified state of a key after it has been
+     * changed. Now there are different conditions which indicate that a key has
+     * been modified (relative to the original). We test for them all:
      * - is only modified, if the key is contained (not ending with commentID)
      * - is modified, if it is not contained in the original property (newly created)
      * - if the content is null, then it was removed
      * - if the content is not the same as the content of the original property (also if comments differ)
      * 
+     * @param key The changed key (not ending with commentID).
+     */
+    private void updateModified(String key) {
+        if (isModified(key)) {
+            modifiedKeys.add(key);
+        } else {
+            modifiedKeys.remove(key);
+        }
+    }
+
+    /**
+     * Internal function! Compares the current content of a key with the original.
+     * 
      * @param key The key to test.
      * @return True if modified.
      */
-    public boolean modified(String key) {
-        if (key.endsWith(commentID)) {
-            return false;
-        }
+    private boolean isModified(String key) {
         // check if we have the key at all
         if (!map.containsKey(key)) {
             return false;
@@ -326,20 +357,25 @@ public class LanguageProperties {
             return true;
         }
         // if value is null, than it was removed
-        if (map.get(key) == null) {
+        String text = map.get(key);
+        if (text == null) {
             return true;
         }
         // the key text was changed
-        if (!map.get(key).equals(prop.get(key))) {
-            return true;
-        }
-        // comment text was newly added
-        if (!prop.containsKey(key + commentID) && map.containsKey(key + commentID)) {
+        if (!text.equals(prop.get(key))) {
             return true;
         }
-        // comment was changed
-        if (prop.containsKey(key) && prop.get(key).equals(map.get(key + commentID))) {
-            return true;
+        String commentKey = key + commentID;
+        if (map.containsKey(commentKey)) {
+            // comment text was newly added
+            if (!prop.containsKey(commentKey)) {
+                return true;
+            }
+            // comment was changed or removed
+            String comment = map.get(commentKey);
+            if (comment == null || !comment.equals(prop.get(commentKey))) {
+                return true;
+            }
         }
         return false;
     }
@@ -365,6 +401,7 @@ public class LanguageProperties {
                 putKeyComment(key, prop.get(key + commentID));
             }
         }
+        updateModified(key);
     }
 
     /**
@@ -374,6 +411,11 @@ public class LanguageProperties {
         for (String key : map.keySet()) {
             map.put(key, null);
         }
+        for (String key : map.keySet()) {
+            if (!key.endsWith(commentID)) {
+                updateModified(key);
+            }
+        }
     }
 
     /**
@@ -395,17 +437,47 @@ public class LanguageProperties {
     }
     
     /**
-     * Tests all keys if they are modified.
+     * Tests if any key is modified.
      * 
      * @return True if at least one key is modified.
      */
     public boolean anyKeyModified() {
-        for (String key: getAllTextKeysAsSet()) {
-            if (modified(key) == true) {
-                return true;
-            }
+        return !modifiedKeys.isEmpty();
+    }
+
+    /**
+     * Remembers the file this language has been loaded from. Used to decide if
+     * a language needs to be saved at all.
+     *
+     * @param resource The resource the content was loaded from.
+     */
+    public void setLocation(Resource resource) {
+        location = resource == null ? null : resource.getPath();
+    }
+
+    /**
+     * @return True if the language has been loaded from or saved to a file,
+     * false for languages that only exist in the tree, e.g. the language nodes
+     * that are inserted automatically above a country specific file.
+     */
+    public boolean hasLocation() {
+        return location != null;
+    }
+
+    /**
+     * Tests if saving to a resource would change anything, i.e. if any key is
+     * modified, if the language has never been loaded from or saved to this
+     * resource (e.g. new languages or after a 'save as') or if the file has
+     * vanished in the meantime.
+     *
+     * @param resource The resource to save to.
+     * @return True if the language has to be written to the resource.
+     */
+    public boolean needsSave(Resource resource) {
+        if (location == null || !location.equals(resource.getPath()) || !resource.exists()) {
+            return true;
         }
-        return false;
+        return anyKeyModified();
     }
 
     /**
@@ -415,19 +487,53 @@ public class LanguageProperties {
      * @return  True, if saving was successfully.
      */
     public boolean save(Resource resource) {
-        // copy from map to prop
-        for (String key : map.keySet()) {
-            String text;
-            text = map.get(key);
-            if (text == null) {
-                prop.removeKey(key);
-            } else {
-                prop.put(key, text);
-            }
+        if (saveTemporary(resource)) {
+            saved(resource);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Writes the current state to a temporary resource. The original content,
+     * the location and the modified keys stay unchanged, so a language whose
+     * temporary file cannot be moved to the real file still needs to be saved
+     * and can still be restored. After the move succeeded
+     * {@link #saved(Resource)} must be called.
+     *
+     * @param temporary The resource to write to.
+     * @return True, if writing was successful.
+     */
+    public boolean saveTemporary(Resource temporary) {
+        Property merged = new Property();
+        for (String key : prop.getKeysAsSet()) {
+            merged.put(key, prop.get(key));
+        }
+        copyToProp(merged);
+        merged.setLocation(temporary);
+        if (merged.save()) {
+            written = merged;
+            return true;
+        }
+        written = null;
+        return false;
+    }
+
+    /**
+     * The temporary file written by {@link #saveTemporary(Resource)} has been
+     * moved to the real file. Its content becomes the original and we start
+     * again with an unmodified map.
+     *
+     * @param resource The resource the language now is saved in.
+     */
+    public void saved(Resource resource) {
+        if (written != null) {
+            prop = written;
+            written = null;
         }
         copyToMap();
         prop.setLocation(resource);
-        return prop.save();
+        setLocation(resource);
     }
 
     /**
@@ -444,12 +550,30 @@ public class LanguageProperties {
         return false;
     }
 
+    /**
+     * Copies the modifications of the map to a copy of prop before saving.
+     *
+     * @param target The property to copy to.
+     */
+    private void copyToProp(Property target) {
+        for (String key : map.keySet()) {
+            String text;
+            text = map.get(key);
+            if (text == null) {
+                target.removeKey(key);
+            } else {
+                target.put(key, text);
+            }
+        }
+    }
+
     /**
      * Used in the beginning and after each save action to start with an unmodified map.
      */
     private void copyToMap() {
         // copy to map
         map.clear();
+        modifiedKeys.clear();
         for (String key : prop.getKeysAsSet()) {
             map.put(key, prop.get(key));
         }
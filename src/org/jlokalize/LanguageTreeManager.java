@@ -243,9 +243,30 @@ public class LanguageTreeManager {
         }
         return null;
     }
+
+    /**
+     * Returns the language a node is compared with, i.e. the language of the
+     * parent node or the master for the direct children of the root. The root
+     * and the master itself have no parent language.
+     *
+     * @param node A node of the tree.
+     * @return The parent language or null.
+     */
+    public static LanguageProperties getParentLanguage(TreeNode<LanguageProperties> node) {
+        TreeNode<LanguageProperties> master = getMasterNode(node.getRoot());
+        if (node == node.getRoot() || node == master) {
+            return null;
+        }
+        if (node.getParent() == node.getRoot()) {
+            return master.getData();
+        }
+        return node.getParent().getData();
+    }
     
     /**
-     * Tests if at least one language in the tree has modified keys.
+     * Tests if at least one language in the tree has modified keys. The
+     * languages keep track of their modified keys, so this only costs one
+     * lookup per node, independent of the number of keys.
      * 
      * @param root The root node of the language tree.
      * @return True if at least one language contains at least one modified key.
@@ -16,9 +16,15 @@ package org.jlokalize;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.filechooser.FileFilter;
@@ -63,6 +69,24 @@ public class LanguageTreeProject {
      * be changed via the 'save as' menu
      */
     private String base;
+    /**
+     * Upper limit for the number of threads loading language files in parallel
+     */
+    private static final int MaxOpenThreads = 4;
+    /**
+     * Upper limit for the number of threads saving language files in parallel
+     */
+    private static final int MaxSaveThreads = 4;
+    /**
+     * Extension of the temporary file a language is written to before it
+     * replaces the real file
+     */
+    private static final String TemporaryExtension = ".tmp";
+    /**
+     * Extension of the backup of a language file while it is replaced on
+     * platforms that cannot rename onto existing files
+     */
+    private static final String BackupExtension = ".bak";
     public static final FileFilter FFilter = new FileFilter() {
         /**
          * Filter for accepting files. We accept all directories and all files
@@ -166,6 +190,23 @@ public class LanguageTreeProject {
      * @return True if opening was successful.
      */
     public boolean open(File file) {
+        return open(file, null);
+    }
+
+    /**
+     * Like {@link #open(File)} but the language files are loaded concurrently
+     * by a small pool of worker threads. The loaded languages are still
+     * inserted in the tree one after another in the sorted order of the file
+     * names, so the resulting tree does not depend on which file finished
+     * first. Blocks until all files are loaded, so it should be called from a
+     * background thread if the gui should stay responsive.
+     *
+     * @param file One of the files from the project (doesn't matter which one).
+     * @param listener Notified after each inserted language file, can be null.
+     * @return True if opening was successful.
+     */
+    public boolean open(File file, ProgressListener listener) {
+        ExecutorService executor = null;
         try {
             // get parent directory and file name from the chosen file
             directory = ResourceUtils.asResource(file.getParentFile());
@@ -191,37 +232,60 @@ public class LanguageTreeProject {
             // comment: instead of using the extension we could as well just use the StandardLanguageExtension since during
             // saving it is used anyways
 
-            // Sorting here will result in less overhead during the insertion in the tree but is not strictly neccessary
+            // Sorting here will result in less overhead during the insertion in the tree and fixes the insertion order
             Collections.sort(resources, Resource.comparator);
 
-            // the root node of the tree
-            root = null;
-
-            // going through the list of matching files
+            // process file names to extract the language codes, only valid ones are loaded
+            List<Resource> valid = new ArrayList<Resource>(resources.size());
+            List<String[]> codes = new ArrayList<String[]>(resources.size());
             for (Resource resource : resources) {
-
-                // process file name to extract the language codes
                 String id = resource.getName();
                 id = id.substring(base.length(), id.lastIndexOf('.'));
                 String[] code = id.split("_");
                 code = Arrays.copyOfRange(code, 1, code.length);
                 if (Utils.isValidLanguageCode(code)) {
-                    // load from file and create new properties
-                    Property prop = new Property();
-                    prop.setLocation(resource);
-                    prop.load();
-                    LanguageProperties lang = new LanguageProperties(prop);
-                    // sets base and language tags
-                    lang.setBase(base);
-                    lang.setLanguageCodes(code);
-                    // insert in the tree
-                    root = LanguageTreeManager.insertLangPropInTree(root, lang);
-
+                    valid.add(resource);
+                    codes.add(code);
                 } else {
                     LOG.log(Level.INFO, "Encountered invalid language code in file name: {0}", id);
                 }
             }
 
+            // load from files and create new properties in parallel
+            int threads = Math.max(1, Math.min(valid.size(), Math.min(MaxOpenThreads, Runtime.getRuntime().availableProcessors())));
+            executor = Executors.newFixedThreadPool(threads);
+            List<Future<LanguageProperties>> loading = new ArrayList<Future<LanguageProperties>>(valid.size());
+            for (final Resource resource : valid) {
+                loading.add(executor.submit(new Callable<LanguageProperties>() {
+                    @Override
+                    public LanguageProperties call() {
+                        Property prop = new Property();
+                        prop.setLocation(resource);
+                        prop.load();
+                        LanguageProperties lang = new LanguageProperties(prop);
+                        lang.setLocation(resource);
+                        return lang;
+                    }
+                }));
+            }
+
+            // the root node of the tree
+            root = null;
+
+            // going through the loaded languages in the sorted order of the files
+            int n = valid.size();
+            for (int i = 0; i < n; i++) {
+                LanguageProperties lang = loading.get(i).get();
+                // sets base and language tags
+                lang.setBase(base);
+                lang.setLanguageCodes(codes.get(i));
+                // insert in the tree
+                root = LanguageTreeManager.insertLangPropInTree(root, lang);
+                if (listener != null) {
+                    listener.fileProcessed(valid.get(i).getName(), i + 1, n);
+                }
+            }
+
             // sort according to clear names
             LanguageTreeManager.sortTreeForClearNames(root);
 
@@ -231,6 +295,19 @@ public class LanguageTreeProject {
             // maybe also need to close files here?
             reset();
             return false;
+        } catch (ExecutionException ex) {
+            LOG.log(Level.WARNING, "Opening project " + base + " failed.", ex.getCause());
+            reset();
+            return false;
+        } catch (InterruptedException ex) {
+            LOG.log(Level.WARNING, "Opening project {0} was interrupted.", base);
+            Thread.currentThread().interrupt();
+            reset();
+            return false;
+        } finally {
+            if (executor != null) {
+                executor.shutdownNow();
+            }
         }
         return true;
     }
@@ -284,4 +361,132 @@ public class LanguageTreeProject {
             language.save(resource);
         }
     }
+
+    /**
+     * Saves only the languages which actually changed (see
+     * LanguageProperties.needsSave()), untouched language files are not
+     * written at all. Each language is first written to a temporary file in
+     * the project directory which then replaces the real file, so an
+     * interrupted save never leaves a half written language file behind. The
+     * languages are written in parallel.
+     *
+     * @return True if all changed languages could be saved.
+     */
+    public boolean saveModified() {
+        return saveLanguages(false);
+    }
+
+    /**
+     * Rewrites every language file of the project in the standard format of
+     * the editor, whether it changed or not. Languages that only exist in the
+     * tree are not written. Used by the batch mode to normalize projects.
+     *
+     * @return True if all languages could be saved.
+     */
+    public boolean normalize() {
+        return saveLanguages(true);
+    }
+
+    /**
+     * Internal function! Writes the languages like described in
+     * {@link #saveModified()}.
+     *
+     * @param all If true every language loaded from a file is written, otherwise only the changed ones.
+     * @return True if all these languages could be saved.
+     */
+    private boolean saveLanguages(boolean all) {
+        // find the languages that need to be written
+        List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+        for (TreeNode<LanguageProperties> node : root.subTreeNodesList()) {
+            final LanguageProperties language = node.getData();
+            final String name = language.toFileName() + StandardLanguageExtension;
+            final Resource resource;
+            try {
+                resource = ResourceUtils.subResource(directory, name);
+            } catch (IOException ex) {
+                LOG.log(Level.SEVERE, null, ex);
+                return false;
+            }
+            if (all ? language.hasLocation() : language.needsSave(resource)) {
+                tasks.add(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws IOException {
+                        Resource temporary = ResourceUtils.subResource(directory, name + TemporaryExtension);
+                        if (!language.saveTemporary(temporary)) {
+                            temporary.delete();
+                            return false;
+                        }
+                        if (!replaceFile(new File(temporary.getPath()), new File(resource.getPath()))) {
+                            LOG.log(Level.WARNING, "Could not replace {0}.", resource.getPath());
+                            temporary.delete();
+                            return false;
+                        }
+                        language.saved(resource);
+                        return true;
+                    }
+                });
+            }
+        }
+        if (tasks.isEmpty()) {
+            return true;
+        }
+
+        // write them in parallel
+        int threads = Math.min(tasks.size(), Math.min(MaxSaveThreads, Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        boolean success = true;
+        try {
+            for (Future<Boolean> result : executor.invokeAll(tasks)) {
+                try {
+                    success &= result.get();
+                } catch (ExecutionException ex) {
+                    LOG.log(Level.SEVERE, null, ex.getCause());
+                    success = false;
+                }
+            }
+        } catch (InterruptedException ex) {
+            LOG.log(Level.WARNING, "Saving project {0} was interrupted.", base);
+            Thread.currentThread().interrupt();
+            success = false;
+        } finally {
+            executor.shutdownNow();
+        }
+        return success;
+    }
+
+    /**
+     * Internal function! Moves a file over another one. The rename is atomic on
+     * most platforms. Where an existing target cannot be replaced (Windows) it
+     * is first renamed to a backup, which is moved back if the source cannot
+     * take its place, so the original file is never lost.
+     *
+     * @param source The file to move.
+     * @param target The file to replace.
+     * @return True if the source now is at the place of the target.
+     */
+    static boolean replaceFile(File source, File target) {
+        if (source.renameTo(target)) {
+            return true;
+        }
+        if (!target.exists()) {
+            return false;
+        }
+        File backup = new File(target.getPath() + BackupExtension);
+        if (backup.exists() && !backup.delete()) {
+            return false;
+        }
+        if (!target.renameTo(backup)) {
+            return false;
+        }
+        if (source.renameTo(target)) {
+            if (!backup.delete()) {
+                LOG.log(Level.WARNING, "Could not delete {0}.", backup.getPath());
+            }
+            return true;
+        }
+        if (!backup.renameTo(target)) {
+            LOG.log(Level.SEVERE, "Could not restore {0}, the original is kept in {1}.", new Object[]{target.getPath(), backup.getPath()});
+        }
+        return false;
+    }
 }
@@ -16,6 +16,8 @@ package org.jlokalize;
 
 import java.awt.Component;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -40,6 +42,8 @@ public class LanguageTreeRenderer extends DefaultTreeCellRenderer {
 
     private static final long serialVersionUID = 1L;
     private static final Logger LOG = Logger.getLogger(LanguageTreeRenderer.class.getName());
+    /** Already loaded flags by lower case country (or language) code, codes without flag map to the generic flag */
+    private final Map<String, ImageIcon> flags = new HashMap<String, ImageIcon>();
 
     /**
      * Renders the cell, mostly setting the language name, adding (Master) if the
@@ -79,7 +83,7 @@ public class LanguageTreeRenderer extends DefaultTreeCellRenderer {
             try {
                 if (code != null) {
                     // get the flag for the country code or the generic one if there is none
-                    icon = getFlag(Main.jarPath + "JLokalize.jar/icons/flags/" + code.toLowerCase() + ".png");
+                    icon = getFlag(code);
                 } else {
                     // no country code, try the language code
                     code = props.getLanguage();
@@ -90,11 +94,11 @@ public class LanguageTreeRenderer extends DefaultTreeCellRenderer {
                             code = langFlagMap.getProperty(code);
                         }
                         // get the icon for the manually chosen country code or try the language code directly (for some languages, e.g. de -> DE, it is already right)
-                        icon = getFlag(Main.jarPath + "JLokalize.jar/icons/flags/" + code.toLowerCase() + ".png");
+                        icon = getFlag(code);
                     } else {
                         // no country code, no language code, just decide according to base (most probably will end as generic flag)
                         code = props.getBase();
-                        icon = getFlag(Main.jarPath + "JLokalize.jar/icons/flags/" + code.toLowerCase() + ".png");
+                        icon = getFlag(code);
                     }
                 }
             } catch (IOException ex) {
@@ -106,19 +110,24 @@ public class LanguageTreeRenderer extends DefaultTreeCellRenderer {
     }
 
     /**
-     * Helper function, called each time the cell is rendered. Each time a file
-     * is loaded again which is ineffective, but not a visible performance problem.
+     * Helper function, called each time the cell is rendered. The flag file is
+     * only loaded the first time a code is asked for, afterwards the icon (or
+     * the generic flag if there was no file) comes from the cache.
      * 
-     * @param fileName The name of the file.
+     * @param code The country code (or language code or base).
      * @return The icon to depict the language or the generic flag icon (the star) if no other flag could be found.
      */
-    private ImageIcon getFlag(String fileName) throws IOException {
-        ImageIcon icon = null;
-        Resource res = ResourceUtils.asResource(fileName);
-        if (res.exists()) {
-            icon = new ImageIcon(ImageIO.read(res.getInputStream()));
-        } else {
-            icon = CentralStatic.retrieve("GenericFlag");
+    private ImageIcon getFlag(String code) throws IOException {
+        code = code.toLowerCase();
+        ImageIcon icon = flags.get(code);
+        if (icon == null) {
+            Resource res = ResourceUtils.asResource(Main.jarPath + "JLokalize.jar/icons/flags/" + code + ".png");
+            if (res.exists()) {
+                icon = new ImageIcon(ImageIO.read(res.getInputStream()));
+            } else {
+                icon = CentralStatic.retrieve("GenericFlag");
+            }
+            flags.put(code, icon);
         }
         return icon;
     }
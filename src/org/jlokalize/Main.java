@@ -167,7 +167,7 @@ public class Main {
      * to use the spell checker to false.
      */
     private static void setupSpellchecker() {
-        SpellCheckerIntegration.registerDictionaries();
+        SpellCheckerIntegration.registerDictionaries(new File(usrPath + "JLokalize.config"));
         if (SpellCheckerIntegration.numAvailable == 0) {
             Main.options.put("pref.dictionary.use", "false");
         }
@@ -0,0 +1,33 @@
+/*
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jlokalize;
+
+/**
+ * Receives notifications while a project processes its language files one
+ * after another (e.g. during opening). The notification is not necessarily
+ * delivered on the event dispatch thread, so implementations that update the
+ * gui have to take care of that themselves.
+ */
+public interface ProgressListener {
+
+    /**
+     * One more language file has been processed.
+     *
+     * @param name The name of the file that has been processed.
+     * @param done Number of files processed so far (including this one).
+     * @param total Total number of files to process.
+     */
+    void fileProcessed(String name, int done, int total);
+}
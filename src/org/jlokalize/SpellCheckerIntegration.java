@@ -21,6 +21,7 @@ import java.io.InputStream;
 import java.net.URL;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JTextArea;
@@ -67,11 +68,36 @@ public class SpellCheckerIntegration {
         SpellChecker.register(c2);
     }
 
+    /**
+     * Binds two text areas to the dictionary of a language, so that they are
+     * checked independently of the language selected in the popup menu. A
+     * language without language code (the default file) uses the selected
+     * language.
+     *
+     * @param c1 Text area 1.
+     * @param c2 Text area 2.
+     * @param language The language edited in the text areas or null.
+     */
+    public static void setLanguage(JTextArea c1, JTextArea c2, LanguageProperties language) {
+        Locale locale = null;
+        if (language != null && language.getLanguage() != null && language.getLanguage().length() > 0) {
+            String country = language.getCountry() == null ? "" : language.getCountry();
+            String variant = language.getVariant() == null ? "" : language.getVariant();
+            locale = new Locale(language.getLanguage(), country, variant);
+        }
+        SpellChecker.setLocale(c1, locale);
+        SpellChecker.setLocale(c2, locale);
+    }
+
     /**
      * Registers the Dictionaries. First calculate which ones are available,
-     * then register them.
+     * then register them. The compiled dictionaries are kept in a directory so
+     * that later starts do not need to build them again.
+     *
+     * @param cacheDirectory Directory for the compiled dictionaries or null.
      */
-    public static void registerDictionaries() {
+    public static void registerDictionaries(File cacheDirectory) {
+        SpellChecker.setDictionaryCacheDirectory(cacheDirectory);
         String names = checkDictionariesAvailable();
         SpellChecker.registerDictionaries(SpellCheckerIntegration.class.getResource("/"), names, null);
         SpellChecker.getOptions().setLanguageDisableVisible(true);
@@ -34,6 +34,7 @@ import java.io.InputStream;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.imageio.ImageIO;
@@ -63,6 +64,7 @@ import javax.swing.LayoutStyle.ComponentPlacement;
 import javax.swing.ListSelectionModel;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SwingConstants;
+import javax.swing.SwingWorker;
 import javax.swing.WindowConstants;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
@@ -80,6 +82,7 @@ import org.jlokalize.LanguageTreeModel;
 import org.jlokalize.LanguageTreeProject;
 import org.jlokalize.LanguageTreeRenderer;
 import org.jlokalize.Main;
+import org.jlokalize.ProgressListener;
 import org.jlokalize.SpellCheckerIntegration;
 import org.tools.common.CentralStatic;
 import org.tools.common.TreeNode;
@@ -922,20 +925,78 @@ public class EditorFrame extends JFrame {
     }//GEN-LAST:event_openMenuItemActionPerformed
 
     /**
-     * Called from the 'Open' menu action or from the last opened action.
+     * Called from the 'Open' menu action or from the last opened action. The
+     * language files are loaded in the background, meanwhile the progress bar
+     * shows which file is loaded and opening further projects is disabled.
      *
      * @param file The file that defines a project.
      */
-    private void openProjectAction(File file) {
+    private void openProjectAction(final File file) {
+        final PropertyWithStats lang = CentralStatic.retrieve("lang-prop");
+        final LanguageTreeProject opening = new LanguageTreeProject();
+
+        // no other project can be created or opened while loading
+        setOpenActionsEnabled(false);
+
+        new SwingWorker<Boolean, String>() {
+            @Override
+            protected Boolean doInBackground() {
+                return opening.open(file, new ProgressListener() {
+                    @Override
+                    public void fileProcessed(String name, int done, int total) {
+                        setProgress(100 * done / total);
+                        publish(String.format(lang.get("menu.file.open.progress"), name, done, total));
+                    }
+                });
+            }
+
+            @Override
+            protected void process(List<String> chunks) {
+                String text = chunks.get(chunks.size() - 1);
+                statusProgressBar.setValue(getProgress());
+                statusProgressBar.setString(text);
+                statusProgressBar.setToolTipText(text);
+            }
+
+            @Override
+            protected void done() {
+                setOpenActionsEnabled(true);
+                statusProgressBar.setValue(0);
+                statusProgressBar.setString(null);
+                statusProgressBar.setToolTipText(null);
+
+                boolean opened = false;
+                try {
+                    opened = get();
+                } catch (InterruptedException ex) {
+                    LOG.log(Level.SEVERE, null, ex);
+                } catch (ExecutionException ex) {
+                    LOG.log(Level.SEVERE, null, ex);
+                }
+                openProjectFinished(file, opening, opened);
+            }
+        }.execute();
+    }
+
+    /**
+     * Called on the event dispatch thread after a project has been loaded in
+     * the background.
+     *
+     * @param file The file that defines a project.
+     * @param opened The loaded project.
+     * @param success True if opening was successful.
+     */
+    private void openProjectFinished(File file, LanguageTreeProject opened, boolean success) {
         PropertyWithStats lang = CentralStatic.retrieve("lang-prop");
 
-        if (!project.open(file)) {
+        if (!success) {
             // open failed, delete from last used list            
             deleteFromLastOpenedMenu(file);
             // notification
-            NotificationFactory.createInfoPane(this, String.format(lang.get("menu.file.open.error"), project.getBase()));
+            NotificationFactory.createInfoPane(this, String.format(lang.get("menu.file.open.error"), opened.getBase()));
             return;
         }
+        project = opened;
 
         // a notification
         NotificationFactory.createInfoPane(this, String.format(lang.get("menu.file.open.confirm"), project.getBase()));
@@ -957,6 +1018,19 @@ public class EditorFrame extends JFrame {
         closeMenuItem.setEnabled(true);
     }
 
+    /**
+     * Enables or disables all actions that create or open a project.
+     *
+     * @param enabled True if they should be enabled.
+     */
+    private void setOpenActionsEnabled(boolean enabled) {
+        newMenuItem.setEnabled(enabled);
+        newButton.setEnabled(enabled);
+        openMenuItem.setEnabled(enabled);
+        openButton.setEnabled(enabled);
+        lastOpenedMenu.setEnabled(enabled && !lastOpened.isEmpty());
+    }
+
     /**
      * The save menu item has been clicked. We redirect to "Save as", if no
      * project directory is given (i.e. a new project was created), otherwise we
@@ -972,7 +1046,7 @@ public class EditorFrame extends JFrame {
             // save current text areas
             saveTextAreas();
 
-            project.save();
+            boolean saved = project.saveModified();
 
             // update display of keys in the table, clear all reverse actions and reselect key still available
             KeysTableModel keysTableModel = (KeysTableModel) keysTable.getModel();
@@ -997,6 +1071,11 @@ public class EditorFrame extends JFrame {
 
             // notification
             PropertyWithStats lang = CentralStatic.retrieve("lang-prop");
+            if (!saved) {
+                // the modified languages that could not be written are still modified
+                NotificationFactory.createInfoPane(this, String.format(lang.get("menu.file.save.error"), project.getDir().getPath()));
+                return;
+            }
             // JOptionPane.showMessageDialog(this, "Project saved to " + project.getDir().getPath(), "Saving", JOptionPane.INFORMATION_MESSAGE);
             NotificationFactory.createInfoPane(this, String.format(lang.get("menu.file.save.confirm"), project.getDir().getPath()));
         }
@@ -1177,6 +1256,9 @@ public class EditorFrame extends JFrame {
         TreePath path = evt.getPath();
         langTreeModel.setCurrentNode((TreeNode<LanguageProperties>) path.getLastPathComponent());
 
+        // check the text areas with the dictionary of the edited language
+        SpellCheckerIntegration.setLanguage(valueTextArea, commentTextArea, langTreeModel.getCurrentNode().getData());
+
         // update the keys table
         keysTableModel.update(langTreeModel.getCurrentNode());
 
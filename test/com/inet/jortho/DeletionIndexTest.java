@@ -0,0 +1,103 @@
+/*
+ *  JOrtho
+ *
+ *  Copyright (C) 2005-2011 by i-net software
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License as
+ *  published by the Free Software Foundation; either version 2 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ *  USA.
+ */
+package com.inet.jortho;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the suggestions of the symmetric delete index with the full weighted Damerau-Levenshtein distance to every
+ * word of the shipped dictionaries.
+ */
+public class DeletionIndexTest {
+
+    private static final String[] LANGUAGES = { "de", "en", "ru" };
+
+    private static final long     BUDGET    = Long.MAX_VALUE;
+
+    @Test
+    public void indexFindsTheSameDistances() throws IOException {
+        for( String language : LANGUAGES ) {
+            Dictionary dictionary = SuggestionsTest.load( language );
+            List<String> misspellings = SuggestionsTest.misspell( dictionary, new Random( 13 ) );
+            dictionary.setDeletionIndex( BUDGET, false );
+            for( String misspelling : misspellings ) {
+                Map<String, Integer> expected = SuggestionsTest.search( dictionary, misspelling );
+                String message = language + " " + misspelling;
+                List<Suggestion> suggestions = dictionary.searchSuggestions( misspelling );
+                assertFalse( message, suggestions.isEmpty() );
+                for( Suggestion suggestion : suggestions ) {
+                    assertEquals( message + " " + suggestion, expected.get( suggestion.getWord() ), Integer.valueOf( suggestion.getDissimilarity() ) );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void indexFindsWordsWithOneError() throws IOException {
+        Dictionary dictionary = SuggestionsTest.load( "en" );
+        dictionary.setDeletionIndex( BUDGET, false );
+        String[][] pairs = { { "hpuse", "house" }, { "huose", "house" }, { "hrse", "horse" }, { "houuse", "house" },
+                        { "acommodation", "accommodation" }, { "necesarily", "necessarily" }, { "Hosue", "House" } };
+        for( String[] pair : pairs ) {
+            assertFalse( pair[0], dictionary.exist( pair[0] ) );
+            Map<String, Integer> expected = SuggestionsTest.search( dictionary, pair[0] );
+            assertNotNull( pair[1], expected.get( pair[1] ) );
+            assertTrue( pair[1], words( dictionary.searchSuggestions( pair[0] ) ).contains( pair[1] ) );
+        }
+    }
+
+    @Test
+    public void loadInvalidatesTheIndex() throws IOException {
+        Dictionary dictionary = create( "horse" );
+        dictionary.setDeletionIndex( BUDGET, false );
+        assertEquals( "horse", dictionary.searchSuggestions( "hors" ).get( 0 ).getWord() );
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        create( "house" ).save( output );
+        dictionary.load( new ByteArrayInputStream( output.toByteArray() ) );
+        assertEquals( "[house]", words( dictionary.searchSuggestions( "hous" ) ).toString() );
+        assertFalse( words( dictionary.searchSuggestions( "hors" ) ).contains( "horse" ) );
+    }
+
+    private static Dictionary create( String word ) {
+        DictionaryFactory factory = new DictionaryFactory();
+        factory.add( word );
+        return factory.create();
+    }
+
+    private static List<String> words( List<Suggestion> suggestions ) {
+        List<String> words = new ArrayList<String>();
+        for( Suggestion suggestion : suggestions ) {
+            words.add( suggestion.getWord() );
+        }
+        return words;
+    }
+}
@@ -0,0 +1,465 @@
+/*
+ *  JOrtho
+ *
+ *  Copyright (C) 2005-2011 by i-net software
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License as
+ *  published by the Free Software Foundation; either version 2 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ *  USA.
+ */
+package com.inet.jortho;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import javax.swing.JTextArea;
+
+/**
+ * A benchmark of the spell checker engine with the dictionaries that are shipped with the application. For every
+ * dictionary it measures the load time and heap of the DictionaryFactory, the throughput of Dictionary.exist(), the
+ * latency of searchSuggestions() with and without the suggestion index and the throughput of the Tokenizer. The
+ * loading of the compiled dictionary and the lookups and suggestions of the same dictionary as MappedDictionary are
+ * measured too (the keys with "mapped"), so the array and the memory mapped variant can be compared directly. It is
+ * not a unit test, it is started with <code>ant benchmark</code> or with:
+ *
+ * <pre>
+ * java com.inet.jortho.DictionaryBenchmark [-baseline file] [-out file] [directory] [language ...]
+ * </pre>
+ *
+ * The directory contains the dictionary_xx.ortho files (default "src"). The misspellings are read from a file
+ * misspellings_xx.txt in the same directory with one word per line. If there is no such file then the misspellings
+ * are created from random words of the dictionary with the typical typing errors: transposed, missing, doubled and
+ * wrong letters. The random generator has a fixed seed so that every run checks the same words.
+ * <p>
+ * Every result is one tab separated line with language, metric and value. The output of a previous run can be passed
+ * as baseline, then the baseline value and the change in percent are added to every line.
+ */
+public class DictionaryBenchmark {
+
+    private static final String[] LANGUAGES = { "ar", "bg", "de", "en", "es", "fr", "it", "nl", "pl", "ru" };
+
+    private static final int      LOAD_RUNS      = 3;
+
+    /** the duration of a throughput measurement, the warm up has the same duration */
+    private static final long     MEASURE_NANOS  = 2000000000L;
+
+    /** the count of correct words and misspellings that are checked */
+    private static final int      SAMPLE_COUNT   = 2000;
+
+    /** the count of suggestions like in the popup menu */
+    private static final int      SUGGESTIONS    = 15;
+
+    /** every n-th word of the tokenizer text is misspelled */
+    private static final int      MISSPELL_RATE  = 10;
+
+    /** prevent that the JIT removes the measured calls */
+    private static volatile int   sink;
+
+    private final Random          random         = new Random( 42 );
+
+    private final Map<String, Double> results    = new LinkedHashMap<String, Double>();
+
+    /**
+     * Start the benchmark.
+     * @param args [-baseline file] [-out file] [directory] [language ...]
+     * @throws Exception if any error occur
+     */
+    public static void main( String[] args ) throws Exception {
+        System.setProperty( "java.awt.headless", "true" );
+        File directory = new File( "src" );
+        File baselineFile = null;
+        File outFile = null;
+        List<String> languages = new ArrayList<String>();
+        for( int i = 0; i < args.length; i++ ) {
+            if( args[i].equals( "-baseline" ) ) {
+                baselineFile = new File( args[++i] );
+            } else if( args[i].equals( "-out" ) ) {
+                outFile = new File( args[++i] );
+            } else if( new File( args[i] ).isDirectory() ) {
+                directory = new File( args[i] );
+            } else {
+                languages.add( args[i] );
+            }
+        }
+        if( languages.isEmpty() ) {
+            languages.addAll( Arrays.asList( LANGUAGES ) );
+        }
+        Map<String, Double> baseline = baselineFile == null ? new HashMap<String, Double>() : readResults( baselineFile );
+
+        PrintWriter out = null;
+        if( outFile != null ) {
+            out = new PrintWriter( new OutputStreamWriter( new FileOutputStream( outFile ), "UTF8" ) );
+        }
+        try {
+            for( String language : languages ) {
+                File file = new File( directory, "dictionary_" + language + ".ortho" );
+                if( !file.isFile() ) {
+                    System.err.println( "Missing dictionary: " + file );
+                    continue;
+                }
+                DictionaryBenchmark benchmark = new DictionaryBenchmark();
+                benchmark.run( file, new File( directory, "misspellings_" + language + ".txt" ), new Locale( language ) );
+                for( Map.Entry<String, Double> result : benchmark.results.entrySet() ) {
+                    String key = language + '\t' + result.getKey();
+                    String line = key + '\t' + format( result.getValue().doubleValue() );
+                    if( out != null ) {
+                        out.println( line );
+                    }
+                    Double old = baseline.get( key );
+                    if( old != null ) {
+                        double change = 100 * (result.getValue().doubleValue() - old.doubleValue()) / old.doubleValue();
+                        line += '\t' + format( old.doubleValue() ) + '\t' + String.format( Locale.ROOT, "%+.1f%%", Double.valueOf( change ) );
+                    }
+                    System.out.println( line );
+                }
+            }
+        } finally {
+            if( out != null ) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Run all measurements for one dictionary.
+     */
+    private void run( File file, File misspellingFile, Locale locale ) throws Exception {
+        URL url = file.toURI().toURL();
+
+        // load time and heap, the first run also warm up the JIT
+        long[] loadTimes = new long[LOAD_RUNS];
+        Dictionary dictionary = null;
+        for( int i = 0; i < LOAD_RUNS; i++ ) {
+            dictionary = null;
+            long usedBefore = collectGarbage();
+            resetPeakUsage();
+            long start = System.nanoTime();
+            DictionaryFactory factory = new DictionaryFactory();
+            factory.loadWordList( url );
+            dictionary = factory.create();
+            loadTimes[i] = System.nanoTime() - start;
+            factory = null;
+            if( i == 0 ) {
+                results.put( "heap.peak.mb", Double.valueOf( (getPeakUsage() - usedBefore) / 1048576.0 ) );
+                results.put( "heap.retained.mb", Double.valueOf( (collectGarbage() - usedBefore) / 1048576.0 ) );
+            }
+        }
+        Arrays.sort( loadTimes );
+        results.put( "load.ms", Double.valueOf( loadTimes[LOAD_RUNS / 2] / 1e6 ) );
+        results.put( "size.kb", Double.valueOf( dictionary.getDataSize() * 2 / 1024.0 ) );
+
+        String[] words = sampleWords( dictionary );
+        String[] misspellings = misspellingFile.isFile() ? readMisspellings( misspellingFile ) : misspell( dictionary, words );
+
+        // lookups of correct and wrong words in a mix
+        String[] lookups = new String[words.length + misspellings.length];
+        System.arraycopy( words, 0, lookups, 0, words.length );
+        System.arraycopy( misspellings, 0, lookups, words.length, misspellings.length );
+        Collections.shuffle( Arrays.asList( lookups ), random );
+        measureExist( dictionary, lookups );
+        results.put( "exist.ops", Double.valueOf( measureExist( dictionary, lookups ) ) );
+
+        measureSuggestions( dictionary, misspellings, "suggest.tree" );
+        long start = System.nanoTime();
+        dictionary.setDeletionIndex( Runtime.getRuntime().maxMemory() / 4, false );
+        results.put( "index.ms", Double.valueOf( (System.nanoTime() - start) / 1e6 ) );
+        measureSuggestions( dictionary, misspellings, "suggest.index" );
+        dictionary.setDeletionIndex( 0, false );
+
+        measureCompiled( dictionary, lookups, misspellings );
+
+        JTextArea text = new JTextArea( createText( words, misspellings ) );
+        measureTokenizer( text, dictionary, locale );
+        results.put( "tokenizer.words", Double.valueOf( measureTokenizer( text, dictionary, locale ) ) );
+    }
+
+    /**
+     * Save the dictionary in the compiled format of the DictionaryCache and measure loading it on the heap and the
+     * same tree as MappedDictionary.
+     */
+    private void measureCompiled( Dictionary dictionary, String[] lookups, String[] misspellings ) throws IOException {
+        File file = File.createTempFile( "dictionary", ".compiled" );
+        try {
+            OutputStream output = new FileOutputStream( file );
+            try {
+                dictionary.saveCompiled( output, -1, 0 );
+            } finally {
+                output.close();
+            }
+
+            long[] loadTimes = new long[LOAD_RUNS];
+            for( int i = 0; i < LOAD_RUNS; i++ ) {
+                long start = System.nanoTime();
+                InputStream input = new FileInputStream( file );
+                try {
+                    sink += Dictionary.loadCompiled( input, -1, 0 ).length;
+                } finally {
+                    input.close();
+                }
+                loadTimes[i] = System.nanoTime() - start;
+            }
+            Arrays.sort( loadTimes );
+            results.put( "compiled.load.ms", Double.valueOf( loadTimes[LOAD_RUNS / 2] / 1e6 ) );
+
+            long usedBefore = collectGarbage();
+            long start = System.nanoTime();
+            MappedDictionary mapped = new MappedDictionary( file );
+            results.put( "mapped.load.ms", Double.valueOf( (System.nanoTime() - start) / 1e6 ) );
+            results.put( "mapped.heap.retained.mb", Double.valueOf( (collectGarbage() - usedBefore) / 1048576.0 ) );
+            measureExist( mapped, lookups );
+            results.put( "mapped.exist.ops", Double.valueOf( measureExist( mapped, lookups ) ) );
+            measureSuggestions( mapped, misspellings, "mapped.suggest.tree" );
+        } finally {
+            if( !file.delete() ) {
+                // a mapped file can not be deleted on some platforms
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Call exist() for the words until the measure time is over.
+     * @return the calls per second
+     */
+    private static double measureExist( DictionaryBase dictionary, String[] words ) {
+        long start = System.nanoTime();
+        long end = start + MEASURE_NANOS;
+        long count = 0;
+        int found = 0;
+        long now;
+        do {
+            for( String word : words ) {
+                if( dictionary.exist( word ) ) {
+                    found++;
+                }
+            }
+            count += words.length;
+            now = System.nanoTime();
+        } while( now < end );
+        sink += found;
+        return count * 1e9 / (now - start);
+    }
+
+    /**
+     * Measure the latency of every suggestion search, the first pass is the warm up.
+     */
+    private void measureSuggestions( DictionaryBase dictionary, String[] misspellings, String name ) {
+        long[] times = new long[misspellings.length];
+        for( int pass = 0; pass < 2; pass++ ) {
+            for( int i = 0; i < misspellings.length; i++ ) {
+                long start = System.nanoTime();
+                sink += dictionary.searchSuggestions( misspellings[i], SUGGESTIONS ).size();
+                times[i] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort( times );
+        results.put( name + ".p50.us", Double.valueOf( percentile( times, 0.50 ) / 1e3 ) );
+        results.put( name + ".p99.us", Double.valueOf( percentile( times, 0.99 ) / 1e3 ) );
+    }
+
+    /**
+     * Check the complete text with the Tokenizer until the measure time is over.
+     * @return the checked words per second
+     */
+    private static double measureTokenizer( JTextArea text, Dictionary dictionary, Locale locale ) {
+        SpellCheckerOptions options = new SpellCheckerOptions();
+        int wordCount = text.getText().split( " " ).length;
+        long start = System.nanoTime();
+        long end = start + MEASURE_NANOS;
+        long count = 0;
+        long now;
+        do {
+            Tokenizer tokenizer = new Tokenizer( text, dictionary, locale, options );
+            while( tokenizer.nextInvalidWord() != null ) {
+                sink++;
+            }
+            tokenizer.release();
+            count += wordCount;
+            now = System.nanoTime();
+        } while( now < end );
+        return count * 1e9 / (now - start);
+    }
+
+    /**
+     * Select random words of the dictionary.
+     */
+    private String[] sampleWords( Dictionary dictionary ) {
+        final String[] samples = new String[SAMPLE_COUNT];
+        // reservoir sampling, every word has the same probability
+        dictionary.walkWords( new DictionaryBase.WordVisitor() {
+            private int count;
+
+            public void word( char[] word, int length ) {
+                int i = count < samples.length ? count : random.nextInt( count + 1 );
+                if( i < samples.length ) {
+                    samples[i] = new String( word, 0, length );
+                }
+                count++;
+            }
+        } );
+        return samples;
+    }
+
+    /**
+     * Create a misspelling of every word with one or two typical typing errors.
+     */
+    private String[] misspell( Dictionary dictionary, String[] words ) {
+        String[] misspellings = new String[words.length];
+        for( int i = 0; i < words.length; i++ ) {
+            String word = words[i];
+            int tries = 0;
+            do {
+                StringBuilder builder = new StringBuilder( words[i] );
+                int errors = random.nextInt( 4 ) == 0 ? 2 : 1;
+                for( int e = 0; e < errors && builder.length() > 2; e++ ) {
+                    int pos = random.nextInt( builder.length() - 1 );
+                    switch( random.nextInt( 4 ) ) {
+                        case 0: // transposed letters
+                            char c = builder.charAt( pos );
+                            builder.setCharAt( pos, builder.charAt( pos + 1 ) );
+                            builder.setCharAt( pos + 1, c );
+                            break;
+                        case 1: // missing letter
+                            builder.deleteCharAt( pos );
+                            break;
+                        case 2: // doubled letter
+                            builder.insert( pos, builder.charAt( pos ) );
+                            break;
+                        default: // wrong letter of the same alphabet
+                            String other = words[random.nextInt( words.length )];
+                            builder.setCharAt( pos, other.charAt( random.nextInt( other.length() ) ) );
+                    }
+                }
+                word = builder.toString();
+            } while( dictionary.exist( word ) && ++tries < 10 );
+            misspellings[i] = word;
+        }
+        return misspellings;
+    }
+
+    /**
+     * Create a text of sentences with the words and some misspellings.
+     */
+    private String createText( String[] words, String[] misspellings ) {
+        StringBuilder builder = new StringBuilder();
+        for( int i = 0; i < words.length; i++ ) {
+            builder.append( i % MISSPELL_RATE == 0 ? misspellings[i % misspellings.length] : words[i] );
+            if( i % 12 == 11 ) {
+                builder.append( i % 60 == 59 ? ".\n" : ". " );
+            } else {
+                builder.append( ' ' );
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String[] readMisspellings( File file ) throws IOException {
+        List<String> list = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( file ), "UTF8" ) );
+        try {
+            String line;
+            while( (line = reader.readLine()) != null ) {
+                line = line.trim();
+                if( line.length() > 0 ) {
+                    list.add( line );
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return list.toArray( new String[list.size()] );
+    }
+
+    /**
+     * Read the output of a previous run.
+     */
+    private static Map<String, Double> readResults( File file ) throws IOException {
+        Map<String, Double> map = new HashMap<String, Double>();
+        BufferedReader reader = new BufferedReader( new InputStreamReader( new FileInputStream( file ), "UTF8" ) );
+        try {
+            String line;
+            while( (line = reader.readLine()) != null ) {
+                String[] fields = line.split( "\t" );
+                if( fields.length >= 3 ) {
+                    map.put( fields[0] + '\t' + fields[1], Double.valueOf( fields[2] ) );
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return map;
+    }
+
+    private static long percentile( long[] sorted, double p ) {
+        return sorted[Math.min( sorted.length - 1, (int)(p * sorted.length) )];
+    }
+
+    private static String format( double value ) {
+        return String.format( Locale.ROOT, "%.2f", Double.valueOf( value ) );
+    }
+
+    /**
+     * Run the garbage collector and return the used heap.
+     */
+    private static long collectGarbage() {
+        for( int i = 0; i < 3; i++ ) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void resetPeakUsage() {
+        for( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+            if( pool.getType() == MemoryType.HEAP ) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+
+    /**
+     * The sum of the peak usage of all heap pools since the last reset. The pools can have their peaks at different
+     * times, so it is an upper bound.
+     */
+    private static long getPeakUsage() {
+        long peak = 0;
+        for( MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans() ) {
+            if( pool.getType() == MemoryType.HEAP ) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ *  JOrtho
+ *
+ *  Copyright (C) 2005-2011 by i-net software
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License as
+ *  published by the Free Software Foundation; either version 2 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ *  USA.
+ */
+package com.inet.jortho;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the trees that the DictionaryFactory builds directly from the sorted word lists of the shipped
+ * dictionaries, with and without merged suffixes, with the trees of the node tree, which is used for unsorted words.
+ */
+public class DictionaryFactoryTest {
+
+    private static final String[] LANGUAGES = { "ar", "bg", "de", "en", "es", "fr", "it", "nl", "pl", "ru" };
+
+    @Test
+    public void sortedListGivesTheSameTreeAsTheNodeTree() throws IOException {
+        for( String language : LANGUAGES ) {
+            List<String> list = readWords( language );
+            Dictionary nodes = createFromNodes( list, false );
+
+            // not every shipped list is sorted
+            Collections.sort( list );
+            DictionaryFactory factory = new DictionaryFactory();
+            factory.setMinimize( false );
+            factory.loadWords( list.iterator() );
+            Dictionary sorted = factory.create();
+
+            assertEquals( language, nodes.getDataSize(), sorted.getDataSize() );
+            assertSameWords( language, nodes, sorted );
+        }
+    }
+
+    @Test
+    public void mergedSuffixesKeepTheWords() throws IOException {
+        for( String language : LANGUAGES ) {
+            List<String> list = readWords( language );
+            Dictionary nodes = createFromNodes( list, false );
+
+            DictionaryFactory factory = new DictionaryFactory();
+            factory.loadWords( list.iterator() );
+            Dictionary minimized = factory.create();
+            assertTrue( language, minimized.getDataSize() <= nodes.getDataSize() );
+            assertSameWords( language, nodes, minimized );
+
+            Dictionary minimizedNodes = createFromNodes( list, true );
+            assertEquals( language, minimized.getDataSize(), minimizedNodes.getDataSize() );
+            assertSameWords( language, nodes, minimizedNodes );
+        }
+    }
+
+    @Test
+    public void unsortedWordsAfterSortedWords() {
+        DictionaryFactory factory = new DictionaryFactory();
+        factory.add( "house" );
+        factory.add( "mouse" );
+        factory.add( "horse" );
+        factory.add( "house" );
+        Dictionary dictionary = factory.create();
+        assertEquals( "[horse, house, mouse]", words( dictionary ).toString() );
+        assertTrue( dictionary.exist( "horse" ) );
+        assertFalse( dictionary.exist( "hors" ) );
+    }
+
+    /**
+     * Read the word list of a shipped dictionary.
+     */
+    static List<String> readWords( String language ) throws IOException {
+        URL url = new File( "src", "dictionary_" + language + ".ortho" ).toURI().toURL();
+        List<String> list = new ArrayList<String>();
+        for( WordIterator iterator = new WordIterator( url ); iterator.hasNext(); ) {
+            list.add( iterator.next() );
+        }
+        return list;
+    }
+
+    /**
+     * Create a dictionary with the node tree. The words are added in a not sorted order that the sorted tree is not
+     * used.
+     */
+    static Dictionary createFromNodes( List<String> list, boolean minimize ) {
+        List<String> shuffled = new ArrayList<String>( list );
+        Collections.shuffle( shuffled, new Random( 5 ) );
+        DictionaryFactory factory = new DictionaryFactory();
+        factory.setMinimize( minimize );
+        factory.loadWords( shuffled.iterator() );
+        return factory.create();
+    }
+
+    /**
+     * Check that both dictionaries have the same words in the same order and find the same words.
+     */
+    static void assertSameWords( String message, Dictionary expected, Dictionary actual ) {
+        List<String> words = words( expected );
+        assertEquals( message, words, words( actual ) );
+        for( String word : words ) {
+            assertTrue( message + " " + word, actual.exist( word ) );
+        }
+        for( String misspelling : SuggestionsTest.misspell( expected, new Random( 17 ) ) ) {
+            assertFalse( message + " " + misspelling, actual.exist( misspelling ) );
+        }
+    }
+
+    /**
+     * Get all words of a dictionary in the order of the tree.
+     */
+    static List<String> words( Dictionary dictionary ) {
+        final List<String> words = new ArrayList<String>();
+        dictionary.walkWords( new DictionaryBase.WordVisitor() {
+            public void word( char[] word, int length ) {
+                words.add( new String( word, 0, length ) );
+            }
+        } );
+        return words;
+    }
+}
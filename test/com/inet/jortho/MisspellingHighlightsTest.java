@@ -0,0 +1,124 @@
+/*
+ *  JOrtho
+ *
+ *  Copyright (C) 2005-2011 by i-net software
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License as
+ *  published by the Free Software Foundation; either version 2 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ *  USA.
+ */
+package com.inet.jortho;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+import javax.swing.JTextArea;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Highlighter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the sorted highlights of the AutoSpellChecker replace only the highlights of the checked range, also if
+ * the paragraphs are checked in any order.
+ */
+public class MisspellingHighlightsTest {
+
+    private final Highlighter.HighlightPainter painter = new DefaultHighlighter.DefaultHighlightPainter( Color.RED );
+
+    private JTextArea text;
+
+    private MisspellingHighlights highlights;
+
+    @Before
+    public void setUp() {
+        text = new JTextArea( "0123456\n89abcde\nghij" );
+        highlights = new MisspellingHighlights();
+    }
+
+    @Test
+    public void adjacentRangesInAnyOrder() throws BadLocationException {
+        highlights.replace( text, 8, 16, new int[] { 8, 11 }, painter );
+        highlights.replace( text, 0, 8, new int[] { 4, 7 }, painter );
+        assertHighlights( 4, 7, 8, 11 );
+
+        setUp();
+        highlights.replace( text, 0, 8, new int[] { 4, 8 }, painter );
+        highlights.replace( text, 8, 16, new int[] { 8, 11 }, painter );
+        assertHighlights( 4, 8, 8, 11 );
+
+        // checking a paragraph again keeps both neighbours
+        highlights.replace( text, 16, 20, new int[] { 16, 20 }, painter );
+        highlights.replace( text, 8, 16, new int[] { 12, 14 }, painter );
+        assertHighlights( 4, 8, 12, 14, 16, 20 );
+    }
+
+    @Test
+    public void replaceIntersectingHighlights() throws BadLocationException {
+        highlights.replace( text, 0, 20, new int[] { 2, 4, 10, 12, 15, 16 }, painter );
+        highlights.replace( text, 3, 11, new int[] { 5, 6 }, painter );
+        assertHighlights( 5, 6, 15, 16 );
+        highlights.replace( text, 0, 20, new int[0], painter );
+        assertHighlights();
+    }
+
+    @Test
+    public void highlightsMoveWithTheText() throws BadLocationException {
+        highlights.replace( text, 0, 8, new int[] { 4, 7 }, painter );
+        highlights.replace( text, 8, 16, new int[] { 8, 11 }, painter );
+        text.insert( "xx", 0 );
+        assertHighlights( 6, 9, 10, 13 );
+        highlights.replace( text, 10, 18, new int[] { 14, 16 }, painter );
+        assertHighlights( 6, 9, 14, 16 );
+    }
+
+    @Test
+    public void deletedWordIsRemoved() throws BadLocationException {
+        highlights.replace( text, 0, 8, new int[] { 0, 3 }, painter );
+        highlights.replace( text, 8, 16, new int[] { 8, 11 }, painter );
+        highlights.replace( text, 16, 20, new int[] { 16, 20 }, painter );
+        // the empty highlight at the start of a range
+        text.replaceRange( "", 8, 11 );
+        highlights.replace( text, 8, 13, new int[0], painter );
+        assertHighlights( 0, 3, 13, 17 );
+        // and at the end of the text
+        text.replaceRange( "", 13, 17 );
+        highlights.replace( text, 8, 13, new int[0], painter );
+        assertHighlights( 0, 3 );
+        highlights.removeAll( text );
+        assertHighlights();
+    }
+
+    /**
+     * Check the start and end offsets of the highlights of the text component. The Highlighter does not sort them.
+     */
+    private void assertHighlights( int... expected ) {
+        Highlighter.Highlight[] all = text.getHighlighter().getHighlights();
+        long[] pairs = new long[all.length];
+        for( int i = 0; i < all.length; i++ ) {
+            pairs[i] = ((long)all[i].getStartOffset() << 32) | all[i].getEndOffset();
+        }
+        Arrays.sort( pairs );
+        int[] offsets = new int[2 * pairs.length];
+        for( int i = 0; i < pairs.length; i++ ) {
+            offsets[2 * i] = (int)(pairs[i] >> 32);
+            offsets[2 * i + 1] = (int)pairs[i];
+        }
+        assertEquals( Arrays.toString( expected ), Arrays.toString( offsets ) );
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ *  JOrtho
+ *
+ *  Copyright (C) 2005-2011 by i-net software
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License as
+ *  published by the Free Software Foundation; either version 2 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ *  USA.
+ */
+package com.inet.jortho;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the list of suggestions and compares the banded search in the tree with the full weighted
+ * Damerau-Levenshtein distance to every word of the shipped dictionaries.
+ */
+public class SuggestionsTest {
+
+    private static final String[] LANGUAGES = { "de", "en", "ru" };
+
+    /** the count of misspellings per dictionary */
+    private static final int      COUNT     = 10;
+
+    private static final int      LIMIT     = 15;
+
+    @Test
+    public void addKeepsTheLowestDissimilarityOfAWord() {
+        Suggestions list = new Suggestions( 20 );
+        list.add( new Suggestion( "house", 8 ) );
+        list.add( new Suggestion( "mouse", 5 ) );
+        list.add( new Suggestion( "house", 3 ) );
+        list.add( new Suggestion( "house", 6 ) );
+        list.add( new Suggestion( "horse", 21 ) );
+
+        List<Suggestion> suggestions = list.getlist();
+        assertEquals( 2, suggestions.size() );
+        assertEquals( "house", suggestions.get( 0 ).getWord() );
+        assertEquals( 3, suggestions.get( 0 ).getDissimilarity() );
+        assertEquals( "mouse", suggestions.get( 1 ).getWord() );
+    }
+
+    @Test
+    public void limitKeepsTheBest() {
+        Suggestions list = new Suggestions( 20, 2 );
+        list.add( new Suggestion( "a", 9 ) );
+        list.add( new Suggestion( "b", 7 ) );
+        assertEquals( 8, list.getMaxDissimilarity() );
+        list.add( new Suggestion( "c", 8 ) );
+        list.add( new Suggestion( "a", 2 ) );
+        assertEquals( 6, list.getMaxDissimilarity() );
+        // a better value of a word in the list does not remove another word
+        list.add( new Suggestion( "b", 4 ) );
+
+        List<Suggestion> suggestions = list.getlist();
+        assertEquals( 2, suggestions.size() );
+        assertEquals( "a", suggestions.get( 0 ).getWord() );
+        assertEquals( "b", suggestions.get( 1 ).getWord() );
+        assertEquals( 4, suggestions.get( 1 ).getDissimilarity() );
+        assertEquals( 3, list.getMaxDissimilarity() );
+    }
+
+    @Test
+    public void searchFindsTheSameAsTheFullDistance() throws IOException {
+        for( String language : LANGUAGES ) {
+            Dictionary dictionary = load( language );
+            for( String misspelling : misspell( dictionary, new Random( 11 ) ) ) {
+                Map<String, Integer> expected = search( dictionary, misspelling );
+                String message = language + " " + misspelling;
+
+                Map<String, Integer> found = new HashMap<String, Integer>();
+                for( Suggestion suggestion : dictionary.searchSuggestions( misspelling ) ) {
+                    assertNull( message, found.put( suggestion.getWord(), Integer.valueOf( suggestion.getDissimilarity() ) ) );
+                }
+                assertEquals( message, expected, found );
+
+                List<Integer> best = new ArrayList<Integer>( expected.values() );
+                Collections.sort( best );
+                best = best.subList( 0, Math.min( LIMIT, best.size() ) );
+                List<Integer> values = new ArrayList<Integer>();
+                for( Suggestion suggestion : dictionary.searchSuggestions( misspelling, LIMIT ) ) {
+                    assertEquals( message, expected.get( suggestion.getWord() ), Integer.valueOf( suggestion.getDissimilarity() ) );
+                    values.add( Integer.valueOf( suggestion.getDissimilarity() ) );
+                }
+                assertEquals( message, best, values );
+            }
+        }
+    }
+
+    /**
+     * Load a dictionary of the source folder.
+     */
+    static Dictionary load( String language ) throws IOException {
+        DictionaryFactory factory = new DictionaryFactory();
+        factory.loadWordList( new File( "src", "dictionary_" + language + ".ortho" ).toURI().toURL() );
+        return factory.create();
+    }
+
+    /**
+     * Create misspellings of random words of the dictionary with one or two wrong, missing, additional or transposed
+     * letters.
+     */
+    static List<String> misspell( Dictionary dictionary, Random random ) {
+        final List<String> words = new ArrayList<String>();
+        dictionary.walkWords( new DictionaryBase.WordVisitor() {
+            public void word( char[] word, int length ) {
+                words.add( new String( word, 0, length ) );
+            }
+        } );
+        List<String> misspellings = new ArrayList<String>();
+        while( misspellings.size() < COUNT ) {
+            StringBuilder builder = new StringBuilder( words.get( random.nextInt( words.size() ) ) );
+            int errors = 1 + random.nextInt( 2 );
+            for( int e = 0; e < errors && builder.length() > 2; e++ ) {
+                int pos = random.nextInt( builder.length() - 1 );
+                switch( random.nextInt( 4 ) ) {
+                    case 0:
+                        char c = builder.charAt( pos );
+                        builder.setCharAt( pos, builder.charAt( pos + 1 ) );
+                        builder.setCharAt( pos + 1, c );
+                        break;
+                    case 1:
+                        builder.deleteCharAt( pos );
+                        break;
+                    case 2:
+                        builder.insert( pos, builder.charAt( pos ) );
+                        break;
+                    default:
+                        builder.setCharAt( pos, builder.charAt( builder.length() - 1 - pos ) );
+                }
+            }
+            String word = builder.toString();
+            if( !dictionary.exist( word ) ) {
+                misspellings.add( word );
+            }
+        }
+        return misspellings;
+    }
+
+    /**
+     * Calculate the distance of every word of the dictionary without band and without skipping of branches.
+     * @return the words with a distance up to the max dissimilarity of searchSuggestions()
+     */
+    static Map<String, Integer> search( Dictionary dictionary, final String misspelling ) {
+        final int maxDiff = Math.min( 20, 4 + misspelling.length() );
+        final Map<String, Integer> result = new HashMap<String, Integer>();
+        dictionary.walkWords( new DictionaryBase.WordVisitor() {
+            private int[][] d = new int[0][];
+
+            /** the word of the calculated rows */
+            private char[] previous = new char[0];
+
+            public void word( char[] word, int length ) {
+                if( d.length <= length ) {
+                    d = new int[length + 1][misspelling.length() + 1];
+                    previous = new char[length];
+                    distance( misspelling, word, 0, length, d );
+                } else {
+                    // the rows of the same prefix as the previous word are still valid, the tree walk keeps the order
+                    int common = 0;
+                    while( common < length && common < previous.length && previous[common] == word[common] ) {
+                        common++;
+                    }
+                    distance( misspelling, word, common + 1, length, d );
+                }
+                System.arraycopy( word, 0, previous, 0, length );
+                if( length < previous.length ) {
+                    // a longer previous word has no valid rows after this word
+                    previous[length] = 0;
+                }
+                int diff = d[length][misspelling.length()];
+                if( diff <= maxDiff ) {
+                    result.put( new String( word, 0, length ), Integer.valueOf( diff ) );
+                }
+            }
+        } );
+        return result;
+    }
+
+    /**
+     * The weighted Damerau-Levenshtein distance: 3 for transposed letters, 5 for an additional or missing letter and
+     * charDiff() for a wrong letter.
+     * @param start the first row that is calculated, the rows before are already calculated
+     * @param d the matrix for the calculation with at least length + 1 rows
+     */
+    static void distance( String misspelling, char[] word, int start, int length, int[][] d ) {
+        for( int i = start; i <= length; i++ ) {
+            for( int j = 0; j <= misspelling.length(); j++ ) {
+                if( i == 0 || j == 0 ) {
+                    d[i][j] = 5 * (i + j);
+                    continue;
+                }
+                char a = misspelling.charAt( j - 1 );
+                char c = word[i - 1];
+                int value = Math.min( d[i - 1][j], d[i][j - 1] ) + 5;
+                value = Math.min( value, d[i - 1][j - 1] + (a == c ? 0 : DictionaryBase.charDiff( a, c )) );
+                if( i > 1 && j > 1 && a == word[i - 2] && misspelling.charAt( j - 2 ) == c ) {
+                    value = Math.min( value, d[i - 2][j - 2] + 3 );
+                }
+                d[i][j] = value;
+            }
+        }
+    }
+}
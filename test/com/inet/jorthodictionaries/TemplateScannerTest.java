@@ -0,0 +1,88 @@
+/*
+ *  JOrtho
+ *
+ *  Copyright (C) 2005-2011 by i-net software
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License as
+ *  published by the Free Software Foundation; either version 2 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ *  USA.
+ */
+package com.inet.jorthodictionaries;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the TemplateScanner with the regular expression that BookUtils.findTemplate used before.
+ */
+public class TemplateScannerTest {
+
+    private static final String WIKI_TEXT = "== English ==\n" //
+                    + "{{Wortart|Substantiv|Deutsch}}, {{Wortart | Substantiv}}\n" //
+                    + "{{Deutsch Substantiv Übersicht\n|Genus=n\n|Nominativ Singular=Haus\n}}\n" //
+                    + "{{ Deutsch\tSubstantiv  Übersicht |Genus=n}}\n" //
+                    + "{{en-noun|houses}} {{{en-noun|x}}} {{en-noun}} {{ en-noun\n|s}}\n" //
+                    + "{{Bedeutungen}}\n:[1] {{K|Architektur}} a {{Ü|en|house}}\n" //
+                    + "{{|empty}} {{Wortart|Verb|{{Deutsch|x}}}} {{unclosed|";
+
+    private static final String[] NAMES     = { "Wortart", "Deutsch Substantiv Übersicht", "en-noun", "K", "Ü",
+                    "Deutsch", "Bedeutungen", "unclosed", "Substantiv", "missing" };
+
+    @Test
+    public void sampleWikiText() {
+        for( String name : NAMES ) {
+            assertSameAsRegex( WIKI_TEXT, name );
+        }
+        TemplateScanner scanner = TemplateScanner.get( WIKI_TEXT );
+        assertEquals( WIKI_TEXT.indexOf( "Substantiv|Deutsch" ), scanner.find( "Wortart", 0 ) );
+        assertEquals( WIKI_TEXT.indexOf( "Genus=n}}" ), scanner.find( "Deutsch Substantiv Übersicht", WIKI_TEXT.indexOf( "}}\n{{ Deutsch" ) ) );
+        assertEquals( -1, scanner.find( "Bedeutungen", 0 ) );
+        assertSame( scanner, TemplateScanner.get( WIKI_TEXT ) );
+    }
+
+    @Test
+    public void randomTexts() {
+        Random random = new Random( 3 );
+        String chars = "{{}}||  \t\nabc";
+        String[] names = { "a", "b", "ab", "a b", "a b c", "c" };
+        for( int i = 0; i < 20000; i++ ) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt( 30 );
+            for( int k = 0; k < length; k++ ) {
+                text.append( chars.charAt( random.nextInt( chars.length() ) ) );
+            }
+            for( String name : names ) {
+                assertSameAsRegex( text.toString(), name );
+            }
+        }
+    }
+
+    /**
+     * Check the template for every start index.
+     */
+    private static void assertSameAsRegex( String wikiText, String templateName ) {
+        TemplateScanner scanner = TemplateScanner.get( wikiText );
+        Pattern pattern = Pattern.compile( "\\{\\{\\s*\\Q" + templateName.replace( " ", "\\E\\s+\\Q" ) + "\\E\\s*\\|" );
+        Matcher matcher = pattern.matcher( wikiText );
+        for( int fromIndex = 0; fromIndex <= wikiText.length(); fromIndex++ ) {
+            int expected = matcher.find( fromIndex ) ? matcher.end() : -1;
+            assertEquals( templateName + " in " + wikiText + " from " + fromIndex, expected, scanner.find( templateName, fromIndex ) );
+        }
+    }
+}
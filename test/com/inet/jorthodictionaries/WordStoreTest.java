@@ -0,0 +1,127 @@
+/*
+ *  JOrtho
+ *
+ *  Copyright (C) 2005-2011 by i-net software
+ *
+ *  This program is free software; you can redistribute it and/or
+ *  modify it under the terms of the GNU General Public License as
+ *  published by the Free Software Foundation; either version 2 of the
+ *  License, or (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful, but
+ *  WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ *  General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program; if not, write to the Free Software
+ *  Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA 02111-1307
+ *  USA.
+ */
+package com.inet.jorthodictionaries;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the WordStore with a LinkedHashSet and a TreeSet of Strings.
+ */
+public class WordStoreTest {
+
+    @Test
+    public void sameAsHashSet() {
+        Random random = new Random( 19 );
+        WordStore store = new WordStore();
+        LinkedHashSet<String> expected = new LinkedHashSet<String>();
+        int charCount = 0;
+        // enough words for some rehashes and larger arrays, with many duplicates
+        for( int i = 0; i < 100000; i++ ) {
+            String word = randomWord( random );
+            boolean added = expected.add( word );
+            assertEquals( word, added, store.add( word ) );
+            if( added ) {
+                charCount += word.length();
+            }
+        }
+        assertEquals( expected.size(), store.size() );
+        assertEquals( charCount, store.getCharCount() );
+        assertEquals( new ArrayList<String>( expected ), list( store.iterator() ) );
+        // all words are found after the rehashes
+        for( String word : expected ) {
+            assertFalse( word, store.add( word ) );
+        }
+    }
+
+    @Test
+    public void sortedLikeStrings() {
+        Random random = new Random( 23 );
+        for( int count : new int[] { 0, 1, 2, 3, 7, 64, 1000, 33333 } ) {
+            WordStore store = new WordStore();
+            TreeSet<String> expected = new TreeSet<String>();
+            for( int i = 0; i < count; i++ ) {
+                String word = randomWord( random );
+                expected.add( word );
+                store.add( word );
+            }
+            assertEquals( "count " + count, new ArrayList<String>( expected ), list( store.sortedIterator() ) );
+        }
+    }
+
+    @Test
+    public void prefixesAndCharacterValues() {
+        WordStore store = new WordStore();
+        String[] words = { "ab", "a", "", "abc", "\uFFFF", "b", "ä", "B", "a\u0000", "\uD83D\uDE00" };
+        for( String word : words ) {
+            assertTrue( store.add( word ) );
+        }
+        TreeSet<String> expected = new TreeSet<String>();
+        for( String word : words ) {
+            expected.add( word );
+        }
+        assertEquals( new ArrayList<String>( expected ), list( store.sortedIterator() ) );
+
+        store.clear();
+        assertEquals( 0, store.size() );
+        assertFalse( store.iterator().hasNext() );
+        assertTrue( store.add( "ab" ) );
+    }
+
+    @Test( expected = NoSuchElementException.class )
+    public void iteratorEnd() {
+        WordStore store = new WordStore();
+        store.add( "word" );
+        Iterator<String> words = store.iterator();
+        words.next();
+        words.next();
+    }
+
+    /**
+     * A short word of a few characters that there are many duplicates and equal prefixes.
+     */
+    private static String randomWord( Random random ) {
+        String chars = "abcdeäßАБ一";
+        StringBuilder builder = new StringBuilder();
+        int length = 1 + random.nextInt( 8 );
+        for( int i = 0; i < length; i++ ) {
+            builder.append( chars.charAt( random.nextInt( chars.length() ) ) );
+        }
+        return builder.toString();
+    }
+
+    private static List<String> list( Iterator<String> words ) {
+        List<String> list = new ArrayList<String>();
+        while( words.hasNext() ) {
+            list.add( words.next() );
+        }
+        return list;
+    }
+}
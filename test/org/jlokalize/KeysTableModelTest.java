@@ -0,0 +1,174 @@
+/*
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jlokalize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.swing.JProgressBar;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.tools.common.CentralStatic;
+import org.tools.common.TreeNode;
+import org.tools.i18n.Property;
+import org.tools.i18n.PropertyWithStats;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the keys table, which is changed in place by the edit
+ * operations, always looks like a table that is built from scratch: the same
+ * sorted rows, the same status of every key and the same counters in the
+ * column name and the coverage bar.
+ */
+public class KeysTableModelTest {
+
+    private TreeNode<LanguageProperties> node;
+    private KeysTableModel model;
+    private JProgressBar coverage;
+
+    @BeforeClass
+    public static void setUpClass() {
+        // the column name and the coverage are texts of the gui language
+        CentralStatic.store("lang-prop", new PropertyWithStats());
+    }
+
+    @Before
+    public void setUp() {
+        Property master = new Property();
+        Property german = new Property();
+        for (int i = 0; i < 40; i++) {
+            master.put("key" + i, "text " + i);
+            if (i % 3 != 0) {
+                german.put("key" + i, "Text " + i);
+            }
+        }
+        german.put("Key1", "only german");
+        german.put("extra", "only german");
+
+        LanguageProperties masterLanguage = new LanguageProperties(master);
+        masterLanguage.setBase("test");
+        masterLanguage.setMaster(true);
+        LanguageProperties germanLanguage = new LanguageProperties(german);
+        germanLanguage.setLanguageCodes("de", null, null);
+        TreeNode<LanguageProperties> root = LanguageTreeManager.insertLangPropInTree(null, masterLanguage);
+        root = LanguageTreeManager.insertLangPropInTree(root, germanLanguage);
+        node = root.get(0);
+
+        coverage = new JProgressBar();
+        model = new KeysTableModel(coverage);
+        model.update(node);
+    }
+
+    @Test
+    public void rowsAreSortedIgnoringCase() {
+        List<String> rows = rows(model);
+        assertEquals(42, rows.size());
+        assertEquals("extra", rows.get(0));
+        assertTrue(rows.indexOf("Key1") + 1 == rows.indexOf("key1"));
+        for (int row = 0; row < rows.size(); row++) {
+            assertEquals(row, model.getRow(rows.get(row)));
+        }
+        assertEquals(-1, model.getRow("missing"));
+    }
+
+    @Test
+    public void statusAndCounters() {
+        assertEquals(KeyStatus.Everywhere, entry("key1").status);
+        assertEquals(KeyStatus.OnlyInParent, entry("key3").status);
+        assertEquals(KeyStatus.OnlyHere, entry("extra").status);
+        // 26 of 40 keys of the master are translated
+        assertTrue(model.getColumnName(0).endsWith(" (26)"));
+        assertEquals(65, coverage.getValue());
+        assertEquals(model.getRow("key0"), model.getNextNotHereKey(-1));
+        assertEquals(model.getRow("key12"), model.getNextNotHereKey(model.getRow("key0")));
+
+        // translating a key
+        model.getEntry(model.getRow("key3"));
+        model.updateLastKey("Text 3", "");
+        assertEquals(KeyStatus.Everywhere, entry("key3").status);
+        assertTrue(entry("key3").modified);
+        assertEquals(27 * 100 / 40, coverage.getValue());
+        assertSameAsRebuild("translated");
+    }
+
+    @Test
+    public void editsKeepTheSameRowsAsARebuild() {
+        Random random = new Random(7);
+        for (int i = 0; i < 500; i++) {
+            int row = random.nextInt(model.getRowCount());
+            switch (random.nextInt(5)) {
+                case 0:
+                    String key = "new" + random.nextInt(60);
+                    if (model.containsKey(key) == false) {
+                        model.insertKey(key);
+                    }
+                    break;
+                case 1:
+                    model.getEntry(row);
+                    model.updateLastKey("edited " + i, random.nextBoolean() ? "comment " + i : "");
+                    break;
+                case 2:
+                    model.getEntry(row);
+                    model.removeKey();
+                    break;
+                case 3:
+                    model.getEntry(row);
+                    model.renameKey("Renamed" + random.nextInt(60));
+                    break;
+                default:
+                    model.getEntry(row);
+                    model.restore();
+                    break;
+            }
+            assertSameAsRebuild("operation " + i);
+        }
+    }
+
+    private void assertSameAsRebuild(String message) {
+        JProgressBar rebuiltCoverage = new JProgressBar();
+        KeysTableModel rebuilt = new KeysTableModel(rebuiltCoverage);
+        rebuilt.update(node);
+        assertEquals(message, rows(rebuilt), rows(model));
+        assertEquals(message, states(rebuilt), states(model));
+        assertEquals(message, rebuilt.getColumnName(0), model.getColumnName(0));
+        assertEquals(message, rebuiltCoverage.getValue(), coverage.getValue());
+        assertEquals(message, rebuiltCoverage.getString(), coverage.getString());
+        for (int row = -1; row < model.getRowCount(); row++) {
+            assertEquals(message, rebuilt.getNextNotHereKey(row), model.getNextNotHereKey(row));
+        }
+    }
+
+    private KeysTableEntry entry(String key) {
+        return (KeysTableEntry) model.getValueAt(model.getRow(key), 0);
+    }
+
+    private static List<String> states(KeysTableModel model) {
+        List<String> states = new ArrayList<String>();
+        for (int row = 0; row < model.getRowCount(); row++) {
+            KeysTableEntry entry = (KeysTableEntry) model.getValueAt(row, 0);
+            states.add(entry.key + " " + entry.status + (entry.modified ? " modified" : ""));
+        }
+        return states;
+    }
+
+    private static List<String> rows(KeysTableModel model) {
+        List<String> rows = new ArrayList<String>();
+        for (int row = 0; row < model.getRowCount(); row++) {
+            rows.add(model.getValueAt(row, 0).toString());
+        }
+        return rows;
+    }
+}
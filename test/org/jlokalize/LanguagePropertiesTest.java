@@ -0,0 +1,100 @@
+/*
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jlokalize;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.tools.i18n.Property;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that the set of modified keys always matches a comparison of the
+ * current texts with the loaded ones.
+ */
+public class LanguagePropertiesTest {
+
+    private LanguageProperties language;
+
+    @Before
+    public void setUp() {
+        Property prop = new Property();
+        prop.put("a", "A");
+        prop.put("b", "B");
+        prop.put("b.comment", "comment");
+        language = new LanguageProperties(prop);
+    }
+
+    @Test
+    public void unchangedAfterLoading() {
+        assertFalse(language.anyKeyModified());
+        assertFalse(language.modified("a"));
+    }
+
+    @Test
+    public void changingAndRevertingText() {
+        language.putKeyText("a", "changed");
+        assertTrue(language.modified("a"));
+        assertFalse(language.modified("b"));
+        assertTrue(language.anyKeyModified());
+
+        language.putKeyText("a", "A");
+        assertFalse(language.modified("a"));
+        assertFalse(language.anyKeyModified());
+    }
+
+    @Test
+    public void changingComment() {
+        language.putKeyComment("b", "other");
+        assertTrue(language.modified("b"));
+        language.putKeyComment("b", "comment");
+        assertFalse(language.anyKeyModified());
+
+        language.putKeyComment("a", "new comment");
+        assertTrue(language.modified("a"));
+    }
+
+    @Test
+    public void newRemovedAndRenamedKeys() {
+        language.putKeyText("c", "C");
+        assertTrue(language.modified("c"));
+
+        language.removeKey("a");
+        assertTrue(language.modified("a"));
+
+        language.renameKey("b", "d");
+        assertTrue(language.modified("b"));
+        assertTrue(language.modified("d"));
+        assertEquals("comment", language.getKeyComment("d"));
+    }
+
+    @Test
+    public void restore() {
+        language.putKeyText("a", "changed");
+        language.putKeyText("c", "C");
+        language.restore("a");
+        language.restore("c");
+        assertEquals("A", language.getKeyText("a"));
+        assertNull(language.getKeyText("c"));
+        assertFalse(language.anyKeyModified());
+    }
+
+    @Test
+    public void removeAllKeys() {
+        language.removeAllKeys();
+        assertTrue(language.modified("a"));
+        assertTrue(language.modified("b"));
+        assertFalse(language.modified("b.comment"));
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jlokalize;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Properties;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.tools.common.TreeNode;
+import org.tools.io.ResourceUtils;
+import static org.junit.Assert.*;
+
+/**
+ * Tests that saving a project only writes the changed languages and never
+ * loses a language file.
+ */
+public class LanguageTreeProjectTest {
+
+    /** A time far in the past, files written by a save are newer. */
+    private static final long Old = 1000000000000L;
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = File.createTempFile("jlokalize", "");
+        assertTrue(directory.delete() && directory.mkdir());
+        write("test.properties", "a=A", "b=B", "c=C");
+        write("test_de.properties", "a=A de", "b=B de");
+        write("test_fr.properties", "a=A fr", "c=C fr");
+        for (File file : directory.listFiles()) {
+            assertTrue(file.setLastModified(Old));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        delete(directory);
+    }
+
+    @Test
+    public void saveModifiedWritesNothingIfUnchanged() throws IOException {
+        LanguageTreeProject project = open();
+        byte[] before = read("test_de.properties");
+
+        assertTrue(project.saveModified());
+        assertEquals(3, directory.list().length);
+        for (File file : directory.listFiles()) {
+            assertEquals(file.getName(), Old, file.lastModified());
+        }
+        assertTrue(Arrays.equals(before, read("test_de.properties")));
+    }
+
+    @Test
+    public void saveModifiedWritesOnlyChangedLanguages() throws IOException {
+        LanguageTreeProject project = open();
+        LanguageProperties german = find(project, "de");
+        german.putKeyText("c", "C de");
+        assertTrue(german.anyKeyModified());
+
+        assertTrue(project.saveModified());
+        assertFalse(german.anyKeyModified());
+        assertEquals("C de", load("test_de.properties").getProperty("c"));
+        assertEquals(Old, new File(directory, "test.properties").lastModified());
+        assertEquals(Old, new File(directory, "test_fr.properties").lastModified());
+        // the temporary file has replaced the language file
+        assertEquals(3, directory.list().length);
+
+        // saved once, so the next save does not write it again
+        assertTrue(new File(directory, "test_de.properties").setLastModified(Old));
+        assertTrue(project.saveModified());
+        assertEquals(Old, new File(directory, "test_de.properties").lastModified());
+    }
+
+    @Test
+    public void saveModifiedKeepsOriginalIfWritingFails() throws IOException {
+        LanguageTreeProject project = open();
+        LanguageProperties german = find(project, "de");
+        german.putKeyText("a", "changed");
+        byte[] before = read("test_de.properties");
+
+        // a directory in place of the temporary file cannot be written
+        File blocker = new File(directory, "test_de.properties.tmp");
+        assertTrue(blocker.mkdir());
+        assertTrue(new File(blocker, "file").createNewFile());
+
+        assertFalse(project.saveModified());
+        assertTrue(Arrays.equals(before, read("test_de.properties")));
+        // still modified, so the next save tries again
+        assertTrue(german.anyKeyModified());
+        assertTrue(german.needsSave(ResourceUtils.asResource(new File(directory, "test_de.properties"))));
+
+        delete(blocker);
+        assertTrue(project.saveModified());
+        assertEquals("changed", load("test_de.properties").getProperty("a"));
+        assertEquals(3, directory.list().length);
+    }
+
+    @Test
+    public void saveModifiedKeepsChangesIfReplacingFails() throws IOException {
+        LanguageTreeProject project = open();
+        LanguageProperties german = find(project, "de");
+        german.putKeyText("a", "changed");
+
+        // the temporary file is written but cannot take the place of a non
+        // empty directory, which also cannot be replaced by a backup
+        File target = new File(directory, "test_de.properties");
+        assertTrue(target.delete() && target.mkdir());
+        assertTrue(new File(target, "file").createNewFile());
+        File backup = new File(directory, "test_de.properties.bak");
+        assertTrue(backup.mkdir());
+        assertTrue(new File(backup, "file").createNewFile());
+
+        assertFalse(project.saveModified());
+        assertFalse(new File(directory, "test_de.properties.tmp").exists());
+        // the unsaved text is still a change
+        assertTrue(german.modified("a"));
+        assertTrue(german.needsSave(ResourceUtils.asResource(target)));
+        // and the loaded text can be restored
+        german.restore("a");
+        assertEquals("A de", german.getKeyText("a"));
+        assertFalse(german.anyKeyModified());
+    }
+
+    @Test
+    public void replaceFileMovesSourceOverTarget() throws IOException {
+        File source = write("source", "x=new");
+        File target = new File(directory, "test.properties");
+
+        assertTrue(LanguageTreeProject.replaceFile(source, target));
+        assertFalse(source.exists());
+        assertEquals("new", load("test.properties").getProperty("x"));
+        assertFalse(new File(directory, "test.properties.bak").exists());
+    }
+
+    @Test
+    public void replaceFileKeepsOriginalIfRenameFails() throws IOException {
+        File source = new File(directory, "missing");
+        File target = new File(directory, "test.properties");
+        byte[] before = read("test.properties");
+
+        assertFalse(LanguageTreeProject.replaceFile(source, target));
+        assertTrue(Arrays.equals(before, read("test.properties")));
+        assertFalse(new File(directory, "test.properties.bak").exists());
+    }
+
+    private LanguageTreeProject open() {
+        LanguageTreeProject project = new LanguageTreeProject();
+        assertTrue(project.open(new File(directory, "test.properties")));
+        return project;
+    }
+
+    private static LanguageProperties find(LanguageTreeProject project, String language) {
+        for (TreeNode<LanguageProperties> node : project.getRoot().subTreeNodesList()) {
+            if (language.equals(node.getData().getLanguage())) {
+                return node.getData();
+            }
+        }
+        fail("No language " + language);
+        return null;
+    }
+
+    private File write(String name, String... lines) throws IOException {
+        File file = new File(directory, name);
+        OutputStream out = new FileOutputStream(file);
+        try {
+            for (String line : lines) {
+                out.write((line + "\n").getBytes("ISO-8859-1"));
+            }
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    private byte[] read(String name) throws IOException {
+        File file = new File(directory, name);
+        byte[] data = new byte[(int) file.length()];
+        InputStream in = new FileInputStream(file);
+        try {
+            int n = 0;
+            while (n < data.length) {
+                n += in.read(data, n, data.length - n);
+            }
+        } finally {
+            in.close();
+        }
+        return data;
+    }
+
+    private Properties load(String name) throws IOException {
+        Properties properties = new Properties();
+        InputStream in = new FileInputStream(new File(directory, name));
+        try {
+            properties.load(in);
+        } finally {
+            in.close();
+        }
+        return properties;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,401 @@
+/*
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.jlokalize;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import javax.swing.JProgressBar;
+import org.tools.common.CentralStatic;
+import org.tools.common.TreeNode;
+import org.tools.i18n.PropertyWithStats;
+
+/**
+ * Scale benchmark of the translation model. Generates synthetic projects
+ * with N locales times M keys (base.properties and base_xx_YY.properties)
+ * and measures for every size:
+ *
+ * <pre>
+ * open       LanguageTreeProject.open
+ * update     KeysTableModel.update (a complete rebuild), per locale
+ * modified   LanguageProperties.anyKeyModified for all nodes and
+ *            LanguageTreeManager.anyNodeContainsModifiedKeys
+ * save       LanguageTreeProject.saveModified with one changed locale and
+ *            LanguageTreeProject.save of all locales
+ * </pre>
+ *
+ * Every result is one tab separated line: locales, keys, metric, time in
+ * milliseconds (median of the runs) and allocated megabytes (of all threads,
+ * measured in a separate run). It is not a unit test, start it with:
+ *
+ * <pre>
+ * java org.jlokalize.ProjectBenchmark [-locales 10,50] [-keys 2000,20000] [-runs 5] [directory]
+ * </pre>
+ */
+public class ProjectBenchmark {
+
+    /** Base name of the generated projects. */
+    private static final String Base = "bench";
+    /** Share of the keys of the master that are translated in a locale. */
+    private static final double Translated = 0.9;
+    /** Share of the keys that have a comment. */
+    private static final double Commented = 0.1;
+    /** Keys that are only in a locale but not in the master. */
+    private static final int Orphaned = 20;
+    /** Prevent that the JIT removes the measured calls. */
+    private static volatile int sink;
+
+    private final int runs;
+    private final AllocationMeter meter = new AllocationMeter();
+
+    /**
+     * Internal function! Creates a benchmark.
+     *
+     * @param runs Number of measured runs of every operation.
+     */
+    private ProjectBenchmark(int runs) {
+        this.runs = runs;
+    }
+
+    /**
+     * Main entry point of the benchmark.
+     *
+     * @param args [-locales list] [-keys list] [-runs n] [directory]
+     * @throws IOException If the projects cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        System.setProperty("java.awt.headless", "true");
+        int[] locales = {10, 50};
+        int[] keys = {2000, 20000};
+        int runs = 5;
+        File directory = new File(System.getProperty("java.io.tmpdir"), "jlokalize-benchmark");
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-locales")) {
+                locales = parseList(args[++i]);
+            } else if (args[i].equals("-keys")) {
+                keys = parseList(args[++i]);
+            } else if (args[i].equals("-runs")) {
+                runs = Integer.parseInt(args[++i]);
+            } else {
+                directory = new File(args[i]);
+            }
+        }
+
+        // the keys table shows the coverage with a text of the gui language
+        CentralStatic.store("lang-prop", new PropertyWithStats());
+
+        ProjectBenchmark benchmark = new ProjectBenchmark(runs);
+        System.out.println("locales\tkeys\tmetric\tms\talloc.mb");
+        for (int n : locales) {
+            for (int m : keys) {
+                File dir = new File(directory, n + "x" + m);
+                File master = generateProject(dir, n, m);
+                benchmark.run(master, n, m);
+                deleteProject(dir);
+            }
+        }
+    }
+
+    /**
+     * Generates a project with a master file without language codes and n
+     * locales. The master has m keys, the locales translate most of them and
+     * have a few keys of their own. The content depends only on n and m.
+     *
+     * @param directory The directory for the files, is created if needed.
+     * @param n Number of locales.
+     * @param m Number of keys of the master.
+     * @return The master file.
+     * @throws IOException If writing fails.
+     */
+    public static File generateProject(File directory, int n, int m) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        Random random = new Random(42L * n + m);
+        File master = new File(directory, Base + ".properties");
+        writeLanguage(master, "en", m, 1.0, 0, random);
+        List<Locale> available = getLocales();
+        if (n > available.size()) {
+            throw new IllegalArgumentException("Only " + available.size() + " locales available.");
+        }
+        for (int i = 0; i < n; i++) {
+            Locale locale = available.get(i);
+            File file = new File(directory, Base + "_" + locale.getLanguage() + "_" + locale.getCountry() + ".properties");
+            writeLanguage(file, locale.toString(), m, Translated, Orphaned, random);
+        }
+        return master;
+    }
+
+    /**
+     * Internal function! Measures all operations for one project size.
+     *
+     * @param master The master file of the project.
+     * @param n Number of locales.
+     * @param m Number of keys.
+     */
+    private void run(final File master, int n, int m) {
+        String prefix = n + "\t" + m + "\t";
+
+        // open
+        final LanguageTreeProject[] opened = new LanguageTreeProject[1];
+        report(prefix, "open", new Runnable() {
+
+            @Override
+            public void run() {
+                LanguageTreeProject project = new LanguageTreeProject();
+                if (project.open(master) == false) {
+                    throw new IllegalStateException("Cannot open " + master);
+                }
+                opened[0] = project;
+            }
+        });
+        final LanguageTreeProject project = opened[0];
+        final TreeNode<LanguageProperties> root = project.getRoot();
+        final List<TreeNode<LanguageProperties>> nodes = root.subTreeNodesList();
+
+        // keys table, average per locale
+        final KeysTableModel model = new KeysTableModel(new JProgressBar());
+        report(prefix, "update.per.locale", new Runnable() {
+
+            @Override
+            public void run() {
+                for (TreeNode<LanguageProperties> node : nodes) {
+                    model.update(node);
+                    sink += model.getRowCount();
+                }
+            }
+        }, nodes.size());
+
+        // modification tests, nothing is modified so every language is asked
+        report(prefix, "anyKeyModified.all", new Runnable() {
+
+            @Override
+            public void run() {
+                for (TreeNode<LanguageProperties> node : nodes) {
+                    if (node.getData().anyKeyModified()) {
+                        sink++;
+                    }
+                }
+            }
+        });
+        report(prefix, "anyNodeContainsModifiedKeys", new Runnable() {
+
+            @Override
+            public void run() {
+                if (LanguageTreeManager.anyNodeContainsModifiedKeys(root)) {
+                    sink++;
+                }
+            }
+        });
+
+        // save one changed language, the text changes every run so there is always something to write
+        final LanguageProperties last = nodes.get(nodes.size() - 1).getData();
+        final int[] counter = new int[1];
+        report(prefix, "saveModified.one", new Runnable() {
+
+            @Override
+            public void run() {
+                last.putKeyText("section0.key.0", "changed " + counter[0]++);
+                if (project.saveModified() == false) {
+                    throw new IllegalStateException("Cannot save " + master);
+                }
+            }
+        });
+        report(prefix, "save.all", new Runnable() {
+
+            @Override
+            public void run() {
+                project.save();
+            }
+        });
+        System.out.flush();
+    }
+
+    /**
+     * Internal function! Measures an operation and prints a result line.
+     */
+    private void report(String prefix, String metric, Runnable operation) {
+        report(prefix, metric, operation, 1);
+    }
+
+    /**
+     * Internal function! Measures an operation, the first run is the warm up
+     * and then runs times for the time and once more for the allocation.
+     *
+     * @param prefix The start of the result line.
+     * @param metric Name of the operation.
+     * @param operation The operation.
+     * @param divisor The results are divided by it (operation count per run).
+     */
+    private void report(String prefix, String metric, Runnable operation, int divisor) {
+        operation.run();
+        long[] times = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            operation.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        double allocated = meter.measure(operation);
+        System.out.println(prefix + metric + "\t"
+                + String.format(Locale.ROOT, "%.3f\t%.3f", times[runs / 2] / 1e6 / divisor, allocated / 1048576.0 / divisor));
+    }
+
+    /**
+     * Internal function! Writes a language file. The text of the keys
+     * differs by the locale, so every file has its own content.
+     */
+    private static void writeLanguage(File file, String locale, int keys, double translated, int orphaned, Random random) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "ISO-8859-1"));
+        try {
+            for (int i = 0; i < keys; i++) {
+                if (i > 0 && random.nextDouble() >= translated) {
+                    continue;
+                }
+                if (random.nextDouble() < Commented) {
+                    writer.write("# comment " + i + "\n");
+                }
+                String key = "section" + (i % 50) + ".key." + i;
+                writer.write(key + "=" + locale + " text for key " + i + " with some more words\n");
+            }
+            for (int i = 0; i < orphaned; i++) {
+                writer.write("orphaned." + locale + "." + i + "=orphaned\n");
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Internal function! All locales with language and country, one per
+     * language and country combination, in a fixed order.
+     */
+    private static List<Locale> getLocales() {
+        Map<String, Locale> map = new TreeMap<String, Locale>();
+        for (Locale locale : Locale.getAvailableLocales()) {
+            if (locale.getLanguage().length() == 2 && locale.getCountry().length() == 2 && locale.getVariant().length() == 0) {
+                map.put(locale.toString(), locale);
+            }
+        }
+        return new ArrayList<Locale>(map.values());
+    }
+
+    private static void deleteProject(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    private static int[] parseList(String list) {
+        String[] parts = list.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+
+    /**
+     * Counts the bytes allocated by all threads during an operation, also by
+     * the short living worker threads of open and save. The threads are polled
+     * every millisecond while the operation runs, so the last allocations of
+     * a thread that ends in between can be missed. Needs the HotSpot extension
+     * of the ThreadMXBean, returns NaN without it.
+     */
+    private static class AllocationMeter {
+
+        private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        double measure(final Runnable operation) {
+            if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+                return Double.NaN;
+            }
+            final com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threads;
+            if (!bean.isThreadAllocatedMemorySupported() || !bean.isThreadAllocatedMemoryEnabled()) {
+                return Double.NaN;
+            }
+            Map<Long, Long> initial = poll(bean, new HashMap<Long, Long>());
+            final Map<Long, Long> last = new HashMap<Long, Long>(initial);
+            Thread sampler = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    while (!Thread.currentThread().isInterrupted()) {
+                        synchronized (last) {
+                            poll(bean, last);
+                        }
+                        try {
+                            Thread.sleep(1);
+                        } catch (InterruptedException ex) {
+                            return;
+                        }
+                    }
+                }
+            });
+            sampler.setDaemon(true);
+            sampler.start();
+            try {
+                operation.run();
+            } finally {
+                sampler.interrupt();
+                try {
+                    sampler.join();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            poll(bean, last);
+            // the sampler allocates itself, it is not part of the result
+            last.remove(sampler.getId());
+            long total = 0;
+            for (Map.Entry<Long, Long> entry : last.entrySet()) {
+                Long start = initial.get(entry.getKey());
+                total += entry.getValue() - (start == null ? 0 : start);
+            }
+            return total;
+        }
+
+        /**
+         * Internal function! Stores the allocated bytes of all live threads.
+         */
+        private static Map<Long, Long> poll(com.sun.management.ThreadMXBean bean, Map<Long, Long> values) {
+            long[] ids = bean.getAllThreadIds();
+            long[] bytes = bean.getThreadAllocatedBytes(ids);
+            for (int i = 0; i < ids.length; i++) {
+                if (bytes[i] >= 0) {
+                    values.put(ids[i], bytes[i]);
+                }
+            }
+            return values;
+        }
+    }
+}